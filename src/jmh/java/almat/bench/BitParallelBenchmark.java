@@ -0,0 +1,95 @@
+package almat.bench;
+
+import almat.CompiledPattern;
+import almat.KMPMatcher;
+import almat.Matcher;
+import almat.MyersMatcher;
+import almat.ShiftOrMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static almat.bench.MatcherBenchmark.TEXT_LENGTH;
+
+/**
+ * Bit-parallel engines (patterns of at most 64 chars) next to the LPS loop they replace: exact
+ * Shift-Or, 1-mismatch Shift-Or and 1-edit Myers. Scores read as Mchars/s, as in MatcherBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitParallelBenchmark {
+
+    @Param({"4", "16", "64"})
+    public int patternLength;
+
+    @Param({"DNA", "ENGLISH"})
+    public MatcherBenchmark.Alphabet alphabet;
+
+    private String text;
+    private CompiledPattern lps;
+    private Matcher shiftOr;
+    private Matcher hamming;
+    private Matcher myers;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random r = new Random(42);
+        text = alphabet == MatcherBenchmark.Alphabet.DNA
+                ? MatcherBenchmark.randomText(r, "ACGT")
+                : MatcherBenchmark.englishText(r);
+        String pattern = text.substring(TEXT_LENGTH / 2, TEXT_LENGTH / 2 + patternLength);
+        lps = KMPMatcher.compile(pattern, false);
+        shiftOr = ShiftOrMatcher.compile(pattern);
+        hamming = ShiftOrMatcher.compile(pattern, 1, null);
+        myers = MyersMatcher.compile(pattern, 1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int compiledLps() {
+        int[] count = new int[1];
+        lps.search(text, pos -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int shiftOr() {
+        int[] count = new int[1];
+        shiftOr.search(text, pos -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int hamming1() {
+        int[] count = new int[1];
+        hamming.search(text, pos -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int myers1() {
+        int[] count = new int[1];
+        myers.search(text, pos -> count[0]++);
+        return count[0];
+    }
+}
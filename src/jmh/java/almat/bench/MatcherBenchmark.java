@@ -0,0 +1,219 @@
+package almat.bench;
+
+import almat.AhoCorasickMatcher;
+import almat.CompiledPattern;
+import almat.EngineSelector;
+import almat.HorspoolMatcher;
+import almat.KMPMatcher;
+import almat.Matcher;
+import almat.OperationCounter;
+import almat.SimdMatcher;
+import almat.TwoWayMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of every matcher engine over the same text.
+ * Each invocation scans TEXT_LENGTH chars and is counted as TEXT_LENGTH operations, so the score
+ * (ops/us) reads directly as Mchars/s (= MB/s for single-byte text).
+ * Run with {@code -prof gc} (the jmh profile does) to get allocation rates per engine.
+ *
+ * Alphabets:
+ *  - DNA:         random ACGT, pattern cut from the text
+ *  - ENGLISH:     Zipf-distributed words, pattern cut from the text
+ *  - BINARY:      random 0/1, pattern cut from the text
+ *  - ADVERSARIAL: text a^n, pattern a^(m-1)b (worst case for naive scanning and skip heuristics)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class MatcherBenchmark {
+
+    static final int TEXT_LENGTH = 1 << 20;
+
+    private static final String[] WORDS = {
+            "the", "of", "and", "to", "a", "in", "goal", "is", "was", "he", "for", "it", "with", "as",
+            "his", "on", "be", "at", "by", "match", "team", "scored", "minute", "ball", "penalty",
+            "keeper", "striker", "crowd", "referee", "offside", "corner", "header", "season", "league"
+    };
+
+    public enum Alphabet { DNA, ENGLISH, BINARY, ADVERSARIAL }
+
+    @Param({"1", "4", "16", "64", "256", "1024"})
+    public int patternLength;
+
+    @Param({"DNA", "ENGLISH", "BINARY", "ADVERSARIAL"})
+    public Alphabet alphabet;
+
+    private String text;
+    private String pattern;
+    private CompiledPattern dfa;
+    private CompiledPattern lps;
+    private AhoCorasickMatcher ahoCorasick;
+    private Matcher horspool;
+    private Matcher twoWay;
+    private Matcher simd;
+    private Matcher selected;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random r = new Random(42);
+        text = switch (alphabet) {
+            case DNA -> randomText(r, "ACGT");
+            case BINARY -> randomText(r, "01");
+            case ENGLISH -> englishText(r);
+            case ADVERSARIAL -> "a".repeat(TEXT_LENGTH);
+        };
+        pattern = alphabet == Alphabet.ADVERSARIAL
+                ? "a".repeat(patternLength - 1) + "b"
+                : text.substring(TEXT_LENGTH / 2, TEXT_LENGTH / 2 + patternLength);
+        dfa = KMPMatcher.compile(pattern);
+        lps = KMPMatcher.compile(pattern, false);
+        ahoCorasick = AhoCorasickMatcher.compile(List.of(pattern));
+        horspool = HorspoolMatcher.compile(pattern);
+        twoWay = TwoWayMatcher.compile(pattern);
+        simd = SimdMatcher.compile(pattern);
+        selected = EngineSelector.select(pattern, text, null);
+    }
+
+    /** One-shot KMP, uninstrumented (rebuilds LPS per call, as callers of search(text, pattern) do). */
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int kmpSearch() {
+        int[] count = new int[1];
+        KMPMatcher.search(text, pattern, pos -> count[0]++);
+        return count[0];
+    }
+
+    /** One-shot KMP with a per-search OperationCounter: the cost of instrumentation. */
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public long kmpSearchInstrumented() {
+        OperationCounter ops = new OperationCounter();
+        KMPMatcher.search(text, pattern, pos -> { }, ops);
+        return ops.charComparisons();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int compiledDfa() {
+        int[] count = new int[1];
+        dfa.search(text, pos -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int compiledLps() {
+        int[] count = new int[1];
+        lps.search(text, pos -> count[0]++);
+        return count[0];
+    }
+
+    /** Boxing List API kept for compatibility; shows the allocation rate it costs. */
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int kmpSearchList() {
+        return KMPMatcher.search(text, pattern).size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int ahoCorasickSinglePattern() {
+        int[] count = new int[1];
+        ahoCorasick.search(text, (id, pos) -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int horspool() {
+        int[] count = new int[1];
+        horspool.search(text, pos -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int twoWay() {
+        int[] count = new int[1];
+        twoWay.search(text, pos -> count[0]++);
+        return count[0];
+    }
+
+    /** KMP with the Vector API first/last-char candidate scan (scalar skip loop if the module is missing). */
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int simd() {
+        int[] count = new int[1];
+        simd.search(text, pos -> count[0]++);
+        return count[0];
+    }
+
+    /** Whatever EngineSelector picks for this pattern/text; should track the best engine above. */
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int autoSelected() {
+        int[] count = new int[1];
+        selected.search(text, pos -> count[0]++);
+        return count[0];
+    }
+
+    /** JDK baseline: indexOf loop stepping by one so overlapping matches are counted too. */
+    @Benchmark
+    @OperationsPerInvocation(TEXT_LENGTH)
+    public int stringIndexOf() {
+        int count = 0;
+        for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    static String randomText(Random r, String symbols) {
+        StringBuilder sb = new StringBuilder(TEXT_LENGTH);
+        for (int i = 0; i < TEXT_LENGTH; i++) {
+            sb.append(symbols.charAt(r.nextInt(symbols.length())));
+        }
+        return sb.toString();
+    }
+
+    /** Words drawn with probability ~ 1/rank, separated by spaces. */
+    static String englishText(Random r) {
+        double[] cdf = new double[WORDS.length];
+        double total = 0;
+        for (int k = 0; k < WORDS.length; k++) {
+            total += 1.0 / (k + 1);
+            cdf[k] = total;
+        }
+        StringBuilder sb = new StringBuilder(TEXT_LENGTH + 16);
+        while (sb.length() < TEXT_LENGTH) {
+            double u = r.nextDouble() * total;
+            int k = 0;
+            while (cdf[k] < u) {
+                k++;
+            }
+            sb.append(WORDS[k]).append(' ');
+        }
+        sb.setLength(TEXT_LENGTH);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,279 @@
+package almat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Aho–Corasick multi-pattern matcher with optional instrumentation.
+ * The dictionary is compiled once into an automaton with goto, fail and output links;
+ * every occurrence of every pattern is then reported in a single pass over the text.
+ * Time: O(sum of pattern lengths) to build, O(n + matches) to search
+ * Space: O(number of trie nodes)
+ *
+ * Layout: nodes are numbered in BFS order and their outgoing edges are stored contiguously
+ * (CSR style) in flat arrays, sorted by label, so a goto lookup is a binary search over a
+ * short slice of {@code edgeChar}. The root additionally has a direct lookup table.
+ */
+public final class AhoCorasickMatcher {
+
+    /** A single occurrence: the dictionary index of the pattern and its start offset. */
+    public record Match(int patternId, int position) {}
+
+    /** Receives every (patternId, position) pair found during a search. */
+    @FunctionalInterface
+    public interface MatchListener {
+        void onMatch(int patternId, int position);
+    }
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private final String[] patterns;
+    private final int[] edgeStart;   // node -> first edge index; edges of node u are [edgeStart[u], edgeStart[u + 1])
+    private final char[] edgeChar;   // edge label, sorted within each node
+    private final int[] edgeTarget;  // edge destination node
+    private final int[] rootNext;    // direct goto table for the root, indexed by char
+    private final int[] fail;        // fail link
+    private final int[] output;      // first pattern id ending exactly at node, or NONE
+    private final int[] outputLink;  // nearest proper suffix node with output, or NONE
+    private final int[] nextSameNode; // chains duplicate patterns ending at the same node
+
+    private AhoCorasickMatcher(String[] patterns, int[] edgeStart, char[] edgeChar, int[] edgeTarget,
+                               int[] rootNext, int[] fail, int[] output, int[] outputLink, int[] nextSameNode) {
+        this.patterns = patterns;
+        this.edgeStart = edgeStart;
+        this.edgeChar = edgeChar;
+        this.edgeTarget = edgeTarget;
+        this.rootNext = rootNext;
+        this.fail = fail;
+        this.output = output;
+        this.outputLink = outputLink;
+        this.nextSameNode = nextSameNode;
+    }
+
+    /**
+     * Compile a dictionary into an automaton.
+     * Empty patterns never match (same policy as KMPMatcher); null patterns cause NullPointerException.
+     */
+    public static AhoCorasickMatcher compile(List<String> dictionary) {
+        return compile(dictionary, null);
+    }
+
+    /**
+     * Same as {@link #compile(List)}; increments ops.lpsComputations on each fail-link step taken
+     * while building (when ops is non-null).
+     */
+    public static AhoCorasickMatcher compile(List<String> dictionary, OperationCounter ops) {
+        String[] patterns = dictionary.toArray(new String[0]);
+        int k = patterns.length;
+
+        // Sorting the ids lets every trie node own a contiguous range of patterns sharing its prefix,
+        // so children can be emitted in BFS order without any per-node map.
+        Integer[] boxed = new Integer[k];
+        long totalChars = 0;
+        for (int p = 0; p < k; p++) {
+            boxed[p] = p;
+            totalChars += patterns[p].length(); // NPE for null patterns
+        }
+        Arrays.sort(boxed, Comparator.comparing(p -> patterns[p]));
+        int[] order = new int[k];
+        for (int p = 0; p < k; p++) {
+            order[p] = boxed[p];
+        }
+
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, totalChars + 1);
+        int[] edgeStart = new int[capacity + 1];
+        char[] edgeChar = new char[Math.max(capacity - 1, 0)];
+        int[] edgeTarget = new int[Math.max(capacity - 1, 0)];
+        int[] output = new int[capacity];
+        int[] nextSameNode = new int[k];
+        Arrays.fill(output, NONE);
+        Arrays.fill(nextSameNode, NONE);
+
+        // BFS queue of (lo, hi, depth) ranges over `order`; queue index == node id.
+        int[] qLo = new int[capacity];
+        int[] qHi = new int[capacity];
+        int[] qDepth = new int[capacity];
+        qLo[ROOT] = 0;
+        qHi[ROOT] = k;
+        int nodes = 1;
+        int edges = 0;
+
+        for (int u = 0; u < nodes; u++) {
+            int lo = qLo[u];
+            int hi = qHi[u];
+            int depth = qDepth[u];
+            edgeStart[u] = edges;
+
+            // Patterns whose length equals the depth end here; they sort before their extensions.
+            while (lo < hi && patterns[order[lo]].length() == depth) {
+                int id = order[lo++];
+                if (depth > 0) {
+                    nextSameNode[id] = output[u];
+                    output[u] = id;
+                }
+            }
+            while (lo < hi) {
+                char c = patterns[order[lo]].charAt(depth);
+                int end = lo + 1;
+                while (end < hi && patterns[order[end]].charAt(depth) == c) {
+                    end++;
+                }
+                edgeChar[edges] = c;
+                edgeTarget[edges] = nodes;
+                edges++;
+                qLo[nodes] = lo;
+                qHi[nodes] = end;
+                qDepth[nodes] = depth + 1;
+                nodes++;
+                lo = end;
+            }
+        }
+        edgeStart[nodes] = edges;
+
+        int rootEdges = edgeStart[1];
+        int[] rootNext = new int[rootEdges == 0 ? 0 : edgeChar[rootEdges - 1] + 1];
+        Arrays.fill(rootNext, ROOT);
+        for (int e = 0; e < rootEdges; e++) {
+            rootNext[edgeChar[e]] = edgeTarget[e];
+        }
+
+        AhoCorasickMatcher ac = new AhoCorasickMatcher(
+                patterns,
+                Arrays.copyOf(edgeStart, nodes + 1),
+                Arrays.copyOf(edgeChar, edges),
+                Arrays.copyOf(edgeTarget, edges),
+                rootNext,
+                new int[nodes],
+                Arrays.copyOf(output, nodes),
+                new int[nodes],
+                nextSameNode);
+        long steps = ac.linkFailures(nodes);
+        if (ops != null) {
+            ops.lpsComputations += steps;
+        }
+        return ac;
+    }
+
+    public static AhoCorasickMatcher compile(String... dictionary) {
+        return compile(Arrays.asList(dictionary));
+    }
+
+    /**
+     * Node ids are already in BFS order, so parents are always linked before their children.
+     * @return number of fail-link steps taken
+     */
+    private long linkFailures(int nodes) {
+        long steps = 0;
+        fail[ROOT] = ROOT;
+        outputLink[ROOT] = NONE;
+        for (int u = 0; u < nodes; u++) {
+            for (int e = edgeStart[u]; e < edgeStart[u + 1]; e++) {
+                int v = edgeTarget[e];
+                char c = edgeChar[e];
+                int f;
+                if (u == ROOT) {
+                    f = ROOT;
+                } else {
+                    int s = fail[u];
+                    int next;
+                    while ((next = child(s, c)) == NONE && s != ROOT) {
+                        steps++;
+                        s = fail[s];
+                    }
+                    steps++;
+                    f = next == NONE ? ROOT : next;
+                }
+                fail[v] = f;
+                outputLink[v] = output[f] != NONE ? f : outputLink[f];
+            }
+        }
+        return steps;
+    }
+
+    private int child(int node, char c) {
+        if (node == ROOT) {
+            return c < rootNext.length && rootNext[c] != ROOT ? rootNext[c] : NONE;
+        }
+        int lo = edgeStart[node];
+        int hi = edgeStart[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = edgeChar[mid];
+            if (m < c) {
+                lo = mid + 1;
+            } else if (m > c) {
+                hi = mid - 1;
+            } else {
+                return edgeTarget[mid];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Reports every occurrence of every pattern, in order of end position
+     * (ties reported longest pattern first). Uninstrumented.
+     */
+    public void search(CharSequence text, MatchListener listener) {
+        int state = ROOT;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = child(state, c)) == NONE && state != ROOT) {
+                state = fail[state];
+            }
+            state = next == NONE ? ROOT : next;
+            report(state, i, listener);
+        }
+    }
+
+    /**
+     * Same as {@link #search(CharSequence, MatchListener)}, counting into ops (when non-null):
+     *  - charComparisons incremented on each goto lookup
+     *  - fallbackSteps incremented on each fail-link transition
+     */
+    public void search(CharSequence text, MatchListener listener, OperationCounter ops) {
+        if (ops == null) {
+            search(text, listener);
+            return;
+        }
+        int state = ROOT;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            int next;
+            ops.charComparisons++;
+            while ((next = child(state, c)) == NONE && state != ROOT) {
+                ops.fallbackSteps++;
+                ops.charComparisons++;
+                state = fail[state];
+            }
+            state = next == NONE ? ROOT : next;
+            report(state, i, listener);
+        }
+    }
+
+    /** Reports every pattern ending at text index {@code end} in the given state. */
+    private void report(int state, int end, MatchListener listener) {
+        for (int t = output[state] != NONE ? state : outputLink[state]; t != NONE; t = outputLink[t]) {
+            for (int id = output[t]; id != NONE; id = nextSameNode[id]) {
+                listener.onMatch(id, end - patterns[id].length() + 1);
+            }
+        }
+    }
+
+    public List<Match> search(CharSequence text) {
+        List<Match> result = new ArrayList<>();
+        search(text, (id, pos) -> result.add(new Match(id, pos)));
+        return result;
+    }
+
+    public int patternCount() { return patterns.length; }
+
+    public String pattern(int patternId) { return patterns[patternId]; }
+
+    /** Number of trie nodes, including the root. */
+    public int nodeCount() { return fail.length; }
+}
@@ -0,0 +1,250 @@
+package almat;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary result files ({@code .kmpb}), an opt-in alternative to JSON for results with many matches.
+ * Match offsets are ascending, so each is stored as the delta from the previous one (the first from 0)
+ * in a LEB128 varint: dense matches cost one or two bytes each instead of a decimal number plus ", ".
+ *
+ * Layout; every integer is an unsigned LEB128 varint unless noted:
+ *   "KMPB" magic (4 bytes), format version (1 byte), result count
+ *   per result: dataset, pattern, engine, query (UTF-8 byte length + 1, 0 for null, then the bytes),
+ *               textLength, matchCount, stored match count, match deltas,
+ *               charComparisons, fallbackSteps, matchFallbacks, lpsComputations,
+ *               elapsedMillis, p50Millis, p99Millis, p999Millis (IEEE 754 double bits, 8 bytes big-endian each)
+ */
+public final class BinaryResults {
+
+    public static final String EXTENSION = ".kmpb";
+
+    private static final byte[] MAGIC = {'K', 'M', 'P', 'B'};
+    private static final int VERSION = 3;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private BinaryResults() {}
+
+    public static void write(Path path, List<KMPResult> results) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(out, results);
+        }
+    }
+
+    /** Writes results to out (which is flushed but not closed). */
+    public static void write(OutputStream out, List<KMPResult> results) throws IOException {
+        Encoder e = new Encoder(out);
+        e.bytes(MAGIC);
+        e.raw(VERSION);
+        e.varint(results.size());
+        for (KMPResult r : results) {
+            e.string(r.getDataset());
+            e.string(r.getPattern());
+            e.string(r.getEngine());
+            e.string(r.getQuery());
+            e.varint(r.getTextLength());
+            e.varint(r.getMatchCount());
+            long[] matches = r.getMatches();
+            e.varint(matches.length);
+            long prev = 0;
+            for (long m : matches) {
+                e.varint(m - prev); // wraps harmlessly if offsets were ever unsorted
+                prev = m;
+            }
+            e.varint(r.getCharComparisons());
+            e.varint(r.getFallbackSteps());
+            e.varint(r.getMatchFallbacks());
+            e.varint(r.getLpsComputations());
+            e.float64(r.getElapsedMillis());
+            e.float64(r.getP50Millis());
+            e.float64(r.getP99Millis());
+            e.float64(r.getP999Millis());
+        }
+        e.flush();
+    }
+
+    public static List<KMPResult> read(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads every result written by {@link #write(OutputStream, List)}.
+     * @throws IOException if the stream is not a result file of this version, or is truncated
+     */
+    public static List<KMPResult> read(InputStream in) throws IOException {
+        Decoder d = new Decoder(in);
+        for (byte b : MAGIC) {
+            if (d.raw() != b) {
+                throw new IOException("Not a " + EXTENSION + " result file");
+            }
+        }
+        int version = d.raw();
+        if (version != VERSION) {
+            throw new IOException("Unsupported " + EXTENSION + " version " + version);
+        }
+        int count = d.count();
+        List<KMPResult> results = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            String dataset = d.string();
+            String pattern = d.string();
+            String engine = d.string();
+            String query = d.string();
+            long textLength = d.varint();
+            long matchCount = d.varint();
+            long[] matches = new long[d.count()];
+            long prev = 0;
+            for (int i = 0; i < matches.length; i++) {
+                prev += d.varint();
+                matches[i] = prev;
+            }
+            long charComparisons = d.varint();
+            long fallbackSteps = d.varint();
+            long matchFallbacks = d.varint();
+            long lpsComputations = d.varint();
+            double elapsedMillis = d.float64();
+            double p50Millis = d.float64();
+            double p99Millis = d.float64();
+            double p999Millis = d.float64();
+            results.add(new KMPResult(dataset, pattern, engine, query, textLength,
+                    matchCount, matches, charComparisons, fallbackSteps,
+                    matchFallbacks, lpsComputations, elapsedMillis, p50Millis, p99Millis, p999Millis));
+        }
+        return results;
+    }
+
+    /** Buffers bytes itself so per-byte writes do not go through a stream's locking write(int). */
+    private static final class Encoder {
+        private final OutputStream out;
+        private final byte[] buf = new byte[BUFFER_BYTES];
+        private int pos;
+
+        Encoder(OutputStream out) {
+            this.out = out;
+        }
+
+        void raw(int b) throws IOException {
+            if (pos == buf.length) {
+                drain();
+            }
+            buf[pos++] = (byte) b;
+        }
+
+        void bytes(byte[] b) throws IOException {
+            for (byte x : b) {
+                raw(x);
+            }
+        }
+
+        void varint(long v) throws IOException {
+            if (buf.length - pos < 10) {
+                drain();
+            }
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void float64(double v) throws IOException {
+            long bits = Double.doubleToLongBits(v);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                raw((int) (bits >>> shift));
+            }
+        }
+
+        void string(String s) throws IOException {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            varint(b.length + 1L);
+            bytes(b);
+        }
+
+        private void drain() throws IOException {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+
+        void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+    }
+
+    private static final class Decoder {
+        private final InputStream in;
+        private final byte[] buf = new byte[BUFFER_BYTES];
+        private int pos;
+        private int lim;
+
+        Decoder(InputStream in) {
+            this.in = in;
+        }
+
+        int raw() throws IOException {
+            if (pos == lim) {
+                lim = in.readNBytes(buf, 0, buf.length);
+                pos = 0;
+                if (lim == 0) {
+                    throw new EOFException("Truncated " + EXTENSION + " result file");
+                }
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        long varint() throws IOException {
+            long v = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = raw();
+                if (shift > 63) {
+                    throw new IOException("Malformed varint in " + EXTENSION + " result file");
+                }
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return v;
+                }
+            }
+        }
+
+        double float64() throws IOException {
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits = (bits << 8) | raw();
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        /** A varint used as an array size. */
+        int count() throws IOException {
+            long n = varint();
+            if (n < 0 || n > Integer.MAX_VALUE - 8) {
+                throw new IOException("Corrupt count " + n + " in " + EXTENSION + " result file");
+            }
+            return (int) n;
+        }
+
+        String string() throws IOException {
+            int n = count();
+            if (n == 0) {
+                return null;
+            }
+            byte[] b = new byte[n - 1];
+            for (int i = 0; i < b.length; i++) {
+                b[i] = (byte) raw();
+            }
+            return new String(b, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package almat;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * KMP over raw bytes: the pattern is encoded once with the text's charset and matched
+ * byte-for-byte, so the text is never decoded into chars.
+ * Valid for ASCII, ISO-8859-1 and UTF-8 (UTF-8 is self-synchronizing, so an encoded pattern
+ * can only match at a character boundary), and only those are accepted: in UTF-16, UTF-32 or
+ * Shift_JIS an encoded pattern can match across character boundaries. Reported offsets are byte offsets.
+ * Time: O(n + m)
+ * Space: O(m)
+ */
+public final class BytePattern {
+
+    private final String pattern;
+    private final Charset charset;
+    private final byte[] bytes;
+    private final int[] lps;
+
+    private BytePattern(String pattern, Charset charset, byte[] bytes, OperationCounter ops) {
+        this.pattern = pattern;
+        this.charset = charset;
+        this.bytes = bytes;
+        this.lps = buildLps(bytes, ops);
+    }
+
+    /**
+     * Encode pattern with charset.
+     * @throws IllegalArgumentException if the charset is not US-ASCII, ISO-8859-1 or UTF-8, or the pattern
+     *                                  has chars the charset cannot represent
+     */
+    public static BytePattern compile(String pattern, Charset charset) {
+        return compile(pattern, charset, null);
+    }
+
+    /**
+     * Same as {@link #compile(String, Charset)}; counts LPS steps into ops (when non-null).
+     */
+    public static BytePattern compile(String pattern, Charset charset, OperationCounter ops) {
+        if (!charset.equals(StandardCharsets.US_ASCII) && !charset.equals(StandardCharsets.ISO_8859_1)
+                && !charset.equals(StandardCharsets.UTF_8)) {
+            throw new IllegalArgumentException("Byte-level matching supports US-ASCII, ISO-8859-1 and UTF-8, not "
+                    + charset);
+        }
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        try {
+            ByteBuffer encoded = encoder.encode(CharBuffer.wrap(pattern));
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+            return new BytePattern(pattern, charset, bytes, ops);
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("Pattern cannot be encoded as " + charset + ": " + pattern, e);
+        }
+    }
+
+    /**
+     * Byte counterpart of KMPMatcher.buildLps; counts ops.lpsComputations the same way.
+     */
+    static int[] buildLps(byte[] p, OperationCounter ops) {
+        int m = p.length;
+        int[] lps = new int[m];
+        long steps = 0;
+        int len = 0;
+        int i = 1;
+        while (i < m) {
+            steps++;
+            if (p[i] == p[len]) {
+                lps[i++] = ++len;
+            } else if (len != 0) {
+                len = lps[len - 1];
+            } else {
+                lps[i++] = 0;
+            }
+        }
+        if (ops != null) {
+            ops.lpsComputations += steps;
+        }
+        return lps;
+    }
+
+    /**
+     * Reports the byte offset of every occurrence within segment[from, to). Uninstrumented.
+     */
+    public void search(MemorySegment segment, long from, long to, LongMatchSink sink) {
+        int m = bytes.length;
+        if (m == 0) {
+            return;
+        }
+        long i = from;
+        int j = 0;
+        while (i < to) {
+            if (segment.get(ValueLayout.JAVA_BYTE, i) == bytes[j]) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(i - j);
+                    j = lps[j - 1];
+                }
+            } else if (j != 0) {
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #search(MemorySegment, long, long, LongMatchSink)}, instrumented exactly like
+     * KMPMatcher.search (charComparisons counts byte comparisons) when ops is non-null.
+     */
+    public void search(MemorySegment segment, long from, long to, LongMatchSink sink, OperationCounter ops) {
+        if (ops == null) {
+            search(segment, from, to, sink);
+            return;
+        }
+        int m = bytes.length;
+        if (m == 0) {
+            return;
+        }
+        long i = from;
+        int j = 0;
+        while (i < to) {
+            ops.charComparisons++;
+            if (segment.get(ValueLayout.JAVA_BYTE, i) == bytes[j]) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(i - j);
+                    int nextJ = lps[j - 1];
+                    if (nextJ != 0) {
+                        ops.matchFallbacks++;
+                    }
+                    j = nextJ;
+                }
+            } else if (j != 0) {
+                ops.fallbackSteps++;
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Resumable scan used by FileFollower: continues from KMP state j over buf[from, to), reports
+     * matches as {@code base + index} and returns the state to resume with, so a match split across
+     * two reads is completed by the second one.
+     */
+    int advance(byte[] buf, int from, int to, int j, long base, LongMatchSink sink) {
+        int m = bytes.length;
+        if (m == 0) {
+            return 0;
+        }
+        int i = from;
+        while (i < to) {
+            if (buf[i] == bytes[j]) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(base + i - m);
+                    j = lps[j - 1];
+                }
+            } else if (j != 0) {
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+        return j;
+    }
+
+    public String pattern() { return pattern; }
+
+    public Charset charset() { return charset; }
+
+    /** Length of the encoded pattern in bytes. */
+    public int length() { return bytes.length; }
+}
@@ -0,0 +1,26 @@
+package almat;
+
+/**
+ * Finds positions where a match may start, i.e. where text[i] == first and text[i + lastOffset] == last.
+ * Used by SimdMatcher to skip over text while the KMP state is 0.
+ */
+interface CandidateScanner {
+
+    /** Opens a per-search cursor over text; cursors are not thread-safe. */
+    Cursor open(CharSequence text, char first, int lastOffset, char last);
+
+    interface Cursor {
+        /** Smallest candidate in [from, end], or -1 if there is none. Requires end + lastOffset < text length. */
+        int next(int from, int end);
+    }
+
+    /** Plain char-at-a-time scan; always available. */
+    CandidateScanner SCALAR = (text, first, lastOffset, last) -> (from, end) -> {
+        for (int i = from; i <= end; i++) {
+            if (text.charAt(i) == first && text.charAt(i + lastOffset) == last) {
+                return i;
+            }
+        }
+        return -1;
+    };
+}
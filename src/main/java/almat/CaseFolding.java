@@ -0,0 +1,132 @@
+package almat;
+
+import java.util.Locale;
+
+/**
+ * Case-insensitive matching, selectable per dataset via the input JSON's {@code folding} field.
+ * Folding maps every UTF-16 char to one char, so a folded search reports offsets into the original
+ * text and the text is never copied: engines fold the pattern when compiling and each text char as
+ * they read it (see FoldedPattern and CharMasks).
+ *
+ * UNICODE is simple (one-to-one) case folding, {@code toLowerCase(toUpperCase(c))} per char as in
+ * String.equalsIgnoreCase: it also equates e.g. 'ſ' with 's' and the Kelvin sign with 'k', but not
+ * 'ß' with "ss" (full folding changes lengths). Surrogates fold to themselves, so chars outside the
+ * BMP match exactly.
+ */
+public enum CaseFolding {
+    /** Exact matching (the default). */
+    NONE("none"),
+    /** Only A-Z and a-z are equated. */
+    ASCII("ascii"),
+    /** Simple Unicode case folding of every BMP char. */
+    UNICODE("unicode");
+
+    private final String id;
+
+    CaseFolding(String id) {
+        this.id = id;
+    }
+
+    /** Fold tables, built on first use; 128 KB each, of which ASCII text only touches the first 256 bytes. */
+    private static final class Tables {
+        static final char[] ASCII = build(false);
+        static final char[] UNICODE = build(true);
+
+        private static char[] build(boolean unicode) {
+            char[] table = new char[Character.MAX_VALUE + 1];
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                table[c] = unicode
+                        ? Character.toLowerCase(Character.toUpperCase((char) c))
+                        : c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : (char) c;
+            }
+            return table;
+        }
+    }
+
+    /** Name used in the input JSON and appended to the engine name ("kmp+ascii"). */
+    public String id() { return id; }
+
+    /**
+     * @param name a folding id, case-insensitive; null selects NONE
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static CaseFolding parse(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        String key = name.toLowerCase(Locale.ROOT);
+        for (CaseFolding folding : values()) {
+            if (folding.id.equals(key)) {
+                return folding;
+            }
+        }
+        throw new IllegalArgumentException("Unknown case folding: " + name);
+    }
+
+    /** Char to compare in place of c. */
+    public char fold(char c) {
+        return switch (this) {
+            case NONE -> c;
+            case ASCII -> Tables.ASCII[c];
+            case UNICODE -> Tables.UNICODE[c];
+        };
+    }
+
+    /** s with every char folded (same length). */
+    public String fold(String s) {
+        if (this == NONE) {
+            return s;
+        }
+        char[] table = table();
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = table[chars[i]];
+        }
+        return new String(chars);
+    }
+
+    /** Fold table indexed by char; null for NONE. */
+    char[] table() {
+        return switch (this) {
+            case NONE -> null;
+            case ASCII -> Tables.ASCII;
+            case UNICODE -> Tables.UNICODE;
+        };
+    }
+
+    /** Engine name of a matcher compiled with this folding: unchanged for NONE, else "engine+id". */
+    String engine(String engine) {
+        return this == NONE ? engine : engine + "+" + id;
+    }
+
+    /**
+     * Folded view of text, for engines without built-in folding: each char is folded when read, nothing
+     * is copied, and indices are those of text. Returns text itself for NONE.
+     */
+    CharSequence view(CharSequence text) {
+        return this == NONE ? text : new FoldedText(text, table());
+    }
+
+    private record FoldedText(CharSequence text, char[] table) implements CharSequence {
+
+        @Override
+        public int length() { return text.length(); }
+
+        @Override
+        public char charAt(int index) { return table[text.charAt(index)]; }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new FoldedText(text.subSequence(start, end), table);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                sb.append(charAt(i));
+            }
+            return sb.toString();
+        }
+    }
+}
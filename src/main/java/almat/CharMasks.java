@@ -0,0 +1,109 @@
+package almat;
+
+import java.util.Arrays;
+
+/**
+ * Per-char position masks of a pattern of at most {@value #MAX_PATTERN} chars, for the bit-parallel
+ * engines: bit j of {@code get(c)} is set when pattern[j] == c.
+ * Chars below 256 are looked up in a flat table; the (at most 64) others occurring in the pattern are
+ * kept sorted and binary-searched. Unlike Horspool's low-byte table, masks must be exact, since a
+ * shared slot would report false matches. With a CaseFolding, every char that folds to a pattern
+ * char gets its mask.
+ */
+final class CharMasks {
+
+    static final int MAX_PATTERN = Long.SIZE;
+    private static final int TABLE_SIZE = 256;
+
+    private final long[] low = new long[TABLE_SIZE];
+    private final char[] wide;
+    private final long[] wideMasks;
+
+    /** @throws IllegalArgumentException if the pattern is longer than {@value #MAX_PATTERN} chars */
+    CharMasks(char[] p, String engine) {
+        this(p, engine, CaseFolding.NONE);
+    }
+
+    /**
+     * Masks matching every char that folds to the pattern char, so a folded search reads the text
+     * exactly like an exact one: the folding costs nothing per text char, only a pass over all 64K chars
+     * when compiling.
+     * @throws IllegalArgumentException if the pattern is longer than {@value #MAX_PATTERN} chars
+     */
+    CharMasks(char[] p, String engine, CaseFolding folding) {
+        if (p.length > MAX_PATTERN) {
+            throw new IllegalArgumentException("Engine " + engine + " supports patterns of at most "
+                    + MAX_PATTERN + " chars, got " + p.length);
+        }
+        char[] table = folding.table();
+        if (table != null) {
+            char[] folded = new char[p.length];
+            for (int j = 0; j < p.length; j++) {
+                folded[j] = table[p[j]];
+            }
+            p = folded;
+        }
+        char[] others = new char[p.length];
+        int count = 0;
+        for (int j = 0; j < p.length; j++) {
+            if (p[j] < TABLE_SIZE) {
+                low[p[j]] |= 1L << j;
+            } else {
+                others[count++] = p[j];
+            }
+        }
+        Arrays.sort(others, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || others[i] != others[distinct - 1]) {
+                others[distinct++] = others[i];
+            }
+        }
+        char[] wide = Arrays.copyOf(others, distinct);
+        long[] wideMasks = new long[distinct];
+        for (int j = 0; j < p.length; j++) {
+            if (p[j] >= TABLE_SIZE) {
+                wideMasks[Arrays.binarySearch(wide, p[j])] |= 1L << j;
+            }
+        }
+        if (table != null) {
+            // Every char inherits the mask of its folded form; wide chars folding to a pattern char join the table.
+            long[] foldedLow = low.clone();
+            char[] closure = new char[Character.MAX_VALUE + 1 - TABLE_SIZE];
+            long[] closureMasks = new long[closure.length];
+            int size = 0;
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                char f = table[c];
+                long mask;
+                if (f < TABLE_SIZE) {
+                    mask = foldedLow[f];
+                } else {
+                    int k = Arrays.binarySearch(wide, f);
+                    mask = k >= 0 ? wideMasks[k] : 0;
+                }
+                if (c < TABLE_SIZE) {
+                    low[c] = mask;
+                } else if (mask != 0) {
+                    closure[size] = (char) c;
+                    closureMasks[size++] = mask;
+                }
+            }
+            wide = Arrays.copyOf(closure, size); // ascending, as c was
+            wideMasks = Arrays.copyOf(closureMasks, size);
+        }
+        this.wide = wide;
+        this.wideMasks = wideMasks;
+    }
+
+    long get(char c) {
+        if (c < TABLE_SIZE) {
+            return low[c];
+        }
+        int k = Arrays.binarySearch(wide, c);
+        return k >= 0 ? wideMasks[k] : 0;
+    }
+
+    long tableBytes() {
+        return 16 + 8L * TABLE_SIZE + 16 + 2L * wide.length + 16 + 8L * wideMasks.length;
+    }
+}
@@ -0,0 +1,290 @@
+package almat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A pattern preprocessed once for repeated KMP searches.
+ * Immutable and safe to share across threads: the tables are built in the constructor and
+ * never written again, and searching is uninstrumented (no counter writes).
+ *
+ * When the pattern's alphabet is small (every char below {@link #DFA_MAX_ALPHABET}) the LPS table
+ * is additionally expanded into a full DFA {@code dfa[c][j]}, so the scan takes exactly one table
+ * lookup per text character and has no fallback loop.
+ * Time: O(m) (LPS) or O(R * m) (DFA) to compile, O(n) to search
+ * Space: O(m) or O(R * m)
+ */
+public final class CompiledPattern implements Matcher {
+
+    /** Largest alphabet (max pattern char + 1) for which a DFA is built. */
+    public static final int DFA_MAX_ALPHABET = 256;
+    /** Upper bound on DFA cells (R * (m + 1)) so long patterns fall back to the LPS scan. */
+    public static final int DFA_MAX_CELLS = 1 << 18;
+
+    private final String pattern;
+    private final char[] chars;
+    private final int[] lps;
+    private final int[][] dfa; // null when the LPS scan is used
+
+    CompiledPattern(String pattern, boolean allowDfa, OperationCounter ops) {
+        this.pattern = pattern;
+        this.chars = pattern.toCharArray(); // NPE for null pattern
+        this.lps = KMPMatcher.buildLps(pattern, ops);
+        this.dfa = allowDfa ? buildDfa(chars, lps) : null;
+    }
+
+    /**
+     * DFA over chars [0, R) with m + 1 states; state m is "just matched" and behaves like
+     * state lps[m - 1], which is what makes overlapping matches come out.
+     * Chars at or above R never occur in the pattern and always lead to state 0.
+     */
+    static int[][] buildDfa(char[] p, int[] lps) {
+        int m = p.length;
+        if (m == 0) {
+            return null;
+        }
+        int r = 0;
+        for (char c : p) {
+            r = Math.max(r, c + 1);
+        }
+        if (r > DFA_MAX_ALPHABET || (long) r * (m + 1) > DFA_MAX_CELLS) {
+            return null;
+        }
+        int[][] dfa = new int[r][m + 1];
+        for (int j = 0; j <= m; j++) {
+            int back = j == 0 ? 0 : lps[j - 1];
+            for (int c = 0; c < r; c++) {
+                if (j < m && p[j] == c) {
+                    dfa[c][j] = j + 1;
+                } else {
+                    dfa[c][j] = j == 0 ? 0 : dfa[c][back];
+                }
+            }
+        }
+        return dfa;
+    }
+
+    @Override
+    public String engine() { return dfa != null ? "kmp-dfa" : "kmp"; }
+
+    @Override
+    public String pattern() { return pattern; }
+
+    public int length() { return chars.length; }
+
+    /** Copy of the LPS table. */
+    public int[] lps() { return lps.clone(); }
+
+    /** True when searches run on the precomputed DFA rather than the LPS fallback loop. */
+    public boolean usesDfa() { return dfa != null; }
+
+    /** Pattern chars, LPS and DFA, with array headers. */
+    @Override
+    public long tableBytes() {
+        long bytes = 16 + 2L * chars.length + 16 + 4L * lps.length;
+        if (dfa != null) {
+            bytes += 16 + 4L * dfa.length + dfa.length * (16 + 4L * dfa[0].length);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns start indices of all (possibly overlapping) occurrences in text.
+     */
+    public List<Integer> search(CharSequence text) {
+        List<Integer> result = new ArrayList<>();
+        search(text, result::add);
+        return result;
+    }
+
+    /**
+     * Returns indices (into {@code text}) of all occurrences lying entirely within [from, to).
+     */
+    public List<Integer> search(char[] text, int from, int to) {
+        List<Integer> result = new ArrayList<>();
+        search(text, from, to, result::add);
+        return result;
+    }
+
+    /**
+     * Reports start indices of all occurrences in text to sink; allocates nothing.
+     */
+    @Override
+    public void search(CharSequence text, IntMatchSink sink) {
+        search(text, 0, text.length(), sink); // NPE for null text
+    }
+
+    /**
+     * Reports indices (into {@code text}) of all occurrences lying entirely within [from, to); allocates nothing.
+     */
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink) {
+        Objects.checkFromToIndex(from, to, text.length());
+        int m = chars.length;
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        if (dfa != null) {
+            int[][] dfa = this.dfa;
+            int r = dfa.length;
+            int j = 0;
+            for (int i = from; i < to; i++) {
+                char c = text.charAt(i);
+                j = c < r ? dfa[c][j] : 0;
+                if (j == m) {
+                    sink.onMatch(i - m + 1);
+                }
+            }
+            return;
+        }
+        int j = 0;
+        for (int i = from; i < to; ) {
+            if (text.charAt(i) == chars[j]) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(i - m);
+                    j = lps[j - 1];
+                }
+            } else if (j != 0) {
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Instrumented scan. The LPS layout counts exactly like KMPMatcher.search; the DFA layout counts
+     * one charComparison per table lookup and never falls back.
+     */
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink, OperationCounter ops) {
+        if (ops == null) {
+            search(text, from, to, sink);
+            return;
+        }
+        Objects.checkFromToIndex(from, to, text.length());
+        int m = chars.length;
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        if (dfa != null) {
+            int r = dfa.length;
+            boolean overlapReset = lps[m - 1] != 0;
+            int j = 0;
+            for (int i = from; i < to; i++) {
+                char c = text.charAt(i);
+                ops.charComparisons++;
+                j = c < r ? dfa[c][j] : 0;
+                if (j == m) {
+                    sink.onMatch(i - m + 1);
+                    if (overlapReset) {
+                        ops.matchFallbacks++;
+                    }
+                }
+            }
+            return;
+        }
+        int j = 0;
+        for (int i = from; i < to; ) {
+            ops.charComparisons++;
+            if (text.charAt(i) == chars[j]) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(i - m);
+                    int nextJ = lps[j - 1];
+                    if (nextJ != 0) {
+                        ops.matchFallbacks++;
+                    }
+                    j = nextJ;
+                }
+            } else if (j != 0) {
+                ops.fallbackSteps++;
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Reports indices (into {@code text}) of all occurrences within [from, to) to sink; allocates nothing.
+     */
+    public void search(char[] text, int from, int to, IntMatchSink sink) {
+        Objects.checkFromToIndex(from, to, text.length);
+        int m = chars.length;
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        if (dfa != null) {
+            int[][] dfa = this.dfa;
+            int r = dfa.length;
+            int j = 0;
+            for (int i = from; i < to; i++) {
+                char c = text[i];
+                j = c < r ? dfa[c][j] : 0;
+                if (j == m) {
+                    sink.onMatch(i - m + 1);
+                }
+            }
+            return;
+        }
+        int j = 0;
+        for (int i = from; i < to; ) {
+            if (text[i] == chars[j]) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(i - m);
+                    j = lps[j - 1];
+                }
+            } else if (j != 0) {
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Resumable scan used by StreamingMatcher: continues from KMP state j over text[from, to),
+     * reports matches as {@code base + index} and returns the state to resume with.
+     * Matches straddling the previous chunk are completed here because j carries the partial prefix.
+     */
+    int advance(char[] text, int from, int to, int j, long base, LongMatchSink sink) {
+        int m = chars.length;
+        if (m == 0) {
+            return 0;
+        }
+        if (dfa != null) {
+            int[][] dfa = this.dfa;
+            int r = dfa.length;
+            for (int i = from; i < to; i++) {
+                char c = text[i];
+                j = c < r ? dfa[c][j] : 0;
+                if (j == m) {
+                    sink.onMatch(base + i - m + 1);
+                }
+            }
+            return j;
+        }
+        for (int i = from; i < to; ) {
+            if (text[i] == chars[j]) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(base + i - m);
+                    j = lps[j - 1];
+                }
+            } else if (j != 0) {
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+        return j;
+    }
+}
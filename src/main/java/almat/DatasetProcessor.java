@@ -1,38 +1,614 @@
 package almat;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * Orchestrates reading dataset JSON, running KMP, capturing metrics, and producing KMPResult.
+ * Orchestrates reading dataset JSON, running KMP (or the engine EngineSelector picks), capturing
+ * metrics, and producing KMPResult.
+ * Datasets that carry a {@code patterns} array are searched with a single Aho–Corasick pass instead.
+ *
+ * Every run gets its own OperationCounter. With {@code instrumented = false} the uninstrumented
+ * matcher loops are used and all counters in the result are 0 (timing only).
+ *
+ * Dataset files are streamed (see StreamingDatasetReader): the text is decoded and searched in chunks
+ * of {@link #STREAM_CHUNK} chars, each carrying the previous chunk's last m - 1 chars (maxSpan - 1 for
+ * approximate engines) so no match is lost at a boundary. Texts that fit in one chunk give exactly the counters of an in-memory search;
+ * longer ones also count the re-scanned overlap. elapsedMillis excludes the time spent decoding.
+ *
+ * The dataset's {@code query} field selects a QueryMode: "count" keeps no offsets, while "exists" and
+ * "first-k" stop searching once answered (a streamed text is then only read to the end to measure it).
+ * Its {@code folding} field ("ascii" or "unicode", see CaseFolding) makes the search case-insensitive
+ * without copying the text; offsets still refer to the original text.
+ *
+ * Compile and search phases emit JFR events (MatcherEvents). With {@code repeats > 1} every dataset is
+ * run (and streamed) that many times and the result reports p50 / p99 / p999 of the runs'
+ * elapsedMillis from a LatencyHistogram; counters, matches and elapsedMillis are those of the first run.
  */
 public final class DatasetProcessor {
 
+    /** Text chars searched per step when a dataset file is streamed. */
+    static final int STREAM_CHUNK = 1 << 16;
+
+    private static final String AHO_CORASICK = "aho-corasick";
+    private static final String BYTES_ENGINE = "kmp-bytes";
+
+    static {
+        MatcherEvents.load(); // JFR start-up must not land in the first dataset's elapsedMillis
+    }
+
     public static final class InputModel {
         public String dataset;
         public String pattern;
+        public List<String> patterns;
         public String text;
+        /**
+         * Optional engine override ("kmp", "kmp-dfa", "horspool", "horspool-bounded", "two-way",
+         * "kmp-simd", "shift-or", "hamming-k", "myers-k"); default "auto".
+         */
+        public String engine;
+        /** Optional query mode ("positions", "count", "exists", "first-k"); default "positions". */
+        public String query;
+        /** Match limit of the "first-k" query. */
+        public Integer k;
+        /** Optional case folding ("none", "ascii", "unicode"); default "none" (exact matching). */
+        public String folding;
     }
 
     public static KMPResult process(Path inputFile) throws IOException {
+        KMPResult streamed = StreamingDatasetReader.read(inputFile, (header, text) -> streamSingle(header, text, true));
+        return streamed != null ? streamed : process(JsonIO.read(inputFile, InputModel.class), true);
+    }
+
+    static KMPResult process(InputModel model, boolean instrumented) {
+        OperationCounter ops = instrumented ? new OperationCounter() : null;
+        MatchCollector matches = new MatchCollector(QueryMode.parse(model.query), model.k);
+        long start = System.nanoTime();
+        MatcherEvents.Compile compiling = new MatcherEvents.Compile();
+        compiling.begin();
+        CaseFolding folding = CaseFolding.parse(model.folding);
+        Matcher matcher = model.engine == null || model.engine.equalsIgnoreCase(EngineSelector.AUTO)
+                ? EngineSelector.select(model.pattern, model.text, folding, ops)
+                : EngineSelector.compile(model.engine, model.pattern, folding, ops);
+        MatcherEvents.commit(compiling, model.dataset, matcher.engine(), model.pattern.length(), model.text.length());
+        MatcherEvents.Search searching = new MatcherEvents.Search();
+        searching.begin();
+        MatchCollector.run(() -> matcher.search(model.text, 0, model.text.length(), matches::onMatch, ops));
+        MatcherEvents.commit(searching, model.dataset, matcher.engine(), matches, model.pattern.length(),
+                model.text.length());
+        long elapsedNanos = System.nanoTime() - start;
+
+        double elapsedMillis = elapsedNanos / 1_000_000.0;
+
+        return result(model.dataset, model.pattern, matcher.engine(), model.text.length(), matches, ops, elapsedMillis);
+    }
+
+    /**
+     * Like {@link #process(InputModel, boolean)} with a matcher compiled earlier (e.g. taken from a
+     * PatternCache); {@code lpsComputations} is the preprocessing count of that compilation, reported
+     * as if this search had done it.
+     */
+    static KMPResult search(InputModel model, Matcher matcher, long lpsComputations, boolean instrumented) {
+        OperationCounter ops = instrumented ? new OperationCounter() : null;
+        if (ops != null) {
+            ops.lpsComputations = lpsComputations;
+        }
+        MatchCollector matches = new MatchCollector(QueryMode.parse(model.query), model.k);
+        long start = System.nanoTime();
+        MatcherEvents.Search searching = new MatcherEvents.Search();
+        searching.begin();
+        MatchCollector.run(() -> matcher.search(model.text, 0, model.text.length(), matches::onMatch, ops));
+        MatcherEvents.commit(searching, model.dataset, matcher.engine(), matches, model.pattern.length(),
+                model.text.length());
+        long elapsedNanos = System.nanoTime() - start;
+
+        double elapsedMillis = elapsedNanos / 1_000_000.0;
+
+        return result(model.dataset, model.pattern, matcher.engine(), model.text.length(), matches, ops, elapsedMillis);
+    }
+
+    public static List<KMPResult> processAll(Path inputFile) throws IOException {
+        return processAll(inputFile, true);
+    }
+
+    /**
+     * Like {@link #process(Path)}, but also understands multi-pattern datasets.
+     * Returns one KMPResult per pattern; for a {@code patterns} dataset all results share the
+     * counters and timing of the single automaton pass (build + search).
+     */
+    public static List<KMPResult> processAll(Path inputFile, boolean instrumented) throws IOException {
+        return processAll(inputFile, instrumented, 1);
+    }
+
+    /**
+     * Like {@link #processAll(Path, boolean)}, running the dataset {@code repeats} times for latency
+     * percentiles. Every run streams the file again, so repeats need no more memory than one run.
+     */
+    public static List<KMPResult> processAll(Path inputFile, boolean instrumented, int repeats) throws IOException {
+        if (repeats != 1) {
+            return repeat(repeats, () -> processAll(inputFile, instrumented, 1));
+        }
+        List<KMPResult> streamed = StreamingDatasetReader.read(inputFile, (header, text) ->
+                header.patterns == null || header.patterns.isEmpty()
+                        ? singletonOrNull(streamSingle(header, text, instrumented))
+                        : streamMulti(header, text, instrumented));
+        if (streamed != null) {
+            return streamed;
+        }
+
+        return processAll(JsonIO.read(inputFile, InputModel.class), instrumented);
+    }
+
+    /** In-memory form of {@link #processAll(Path, boolean)} for a dataset that is already parsed. */
+    public static List<KMPResult> processAll(InputModel model, boolean instrumented) {
+        if (model.patterns == null || model.patterns.isEmpty()) {
+            return List.of(process(model, instrumented));
+        }
+        return ahoCorasick(model, instrumented);
+    }
+
+    /** In-memory form of {@link #processAll(Path, boolean, int)}. */
+    public static List<KMPResult> processAll(InputModel model, boolean instrumented, int repeats) {
+        return DatasetProcessor.<RuntimeException>repeat(repeats, () -> processAll(model, instrumented));
+    }
+
+    private static List<KMPResult> ahoCorasick(InputModel model, boolean instrumented) {
+        OperationCounter ops = instrumented ? new OperationCounter() : null;
+        MatchCollector[] perPattern = newCollectors(model, model.patterns.size());
+        int dictionaryLength = dictionaryLength(model.patterns);
+        CaseFolding folding = CaseFolding.parse(model.folding);
+        String engine = folding.engine(AHO_CORASICK);
+        long start = System.nanoTime();
+        MatcherEvents.Compile compiling = new MatcherEvents.Compile();
+        compiling.begin();
+        AhoCorasickMatcher ac = AhoCorasickMatcher.compile(fold(model.patterns, folding), ops);
+        MatcherEvents.commit(compiling, model.dataset, engine, dictionaryLength, model.text.length());
+        MatcherEvents.Search searching = new MatcherEvents.Search();
+        searching.begin();
+        int[] pending = {perPattern.length};
+        MatchCollector.run(() -> ac.search(folding.view(model.text), (id, pos) -> {
+            if (perPattern[id].offer(pos) && --pending[0] == 0) {
+                throw SearchStop.INSTANCE; // every pattern's query is answered
+            }
+        }, ops));
+        commit(searching, model.dataset, engine, perPattern, dictionaryLength, model.text.length());
+        long elapsedNanos = System.nanoTime() - start;
+
+        double elapsedMillis = elapsedNanos / 1_000_000.0;
+
+        return ahoCorasickResults(model.dataset, model.patterns, engine, model.text.length(), perPattern, ops,
+                elapsedMillis);
+    }
+
+    /**
+     * Streaming counterpart of {@link #process(InputModel, boolean)}. The engine is chosen from the first
+     * chunk, which is the whole text whenever it is shorter than a chunk.
+     * @return null when the header has no pattern (it may follow the text), to fall back to the in-memory path
+     */
+    private static KMPResult streamSingle(InputModel header, Reader text, boolean instrumented) throws IOException {
+        if (header.pattern == null) {
+            return null;
+        }
+        OperationCounter ops = instrumented ? new OperationCounter() : null;
+        MatchCollector matches = new MatchCollector(QueryMode.parse(header.query), header.k);
+        int carry = Math.max(header.pattern.length() - 1, 0);
+        char[] buf = new char[carry + STREAM_CHUNK];
+        long readNanos = System.nanoTime();
+        int len = fill(text, buf, 0);
+        long start = System.nanoTime();
+        readNanos = start - readNanos;
+
+        MatcherEvents.Compile compiling = new MatcherEvents.Compile();
+        compiling.begin();
+        CaseFolding folding = CaseFolding.parse(header.folding);
+        Matcher matcher = header.engine == null || header.engine.equalsIgnoreCase(EngineSelector.AUTO)
+                ? EngineSelector.select(header.pattern, CharBuffer.wrap(buf, 0, len), folding, ops)
+                : EngineSelector.compile(header.engine, header.pattern, folding, ops);
+        MatcherEvents.commit(compiling, header.dataset, matcher.engine(), header.pattern.length(), len);
+        MatcherEvents.Search searching = new MatcherEvents.Search();
+        searching.begin();
+        if (matcher.maxSpan() - 1 > carry) {
+            // approximate matcher: occurrences may be longer than the pattern, so carry more
+            carry = matcher.maxSpan() - 1;
+            boolean full = len == buf.length;
+            buf = Arrays.copyOf(buf, carry + STREAM_CHUNK);
+            if (full) {
+                long t = System.nanoTime();
+                len = fill(text, buf, len);
+                readNanos += System.nanoTime() - t;
+            }
+        }
+        char[] chunk = buf;
+        boolean ends = matcher.reportsEnds();
+        long base = 0;       // text offset of buf[0]
+        long textLength = len;
+        int keep = 0;
+        while (true) {
+            long chunkBase = base;
+            int chunkLength = len;
+            int fresh = keep; // end offsets below this were reported with the previous chunk
+            MatchCollector.run(() -> matcher.search(CharBuffer.wrap(chunk, 0, chunkLength), 0, chunkLength, pos -> {
+                if (!ends || pos >= fresh) {
+                    matches.onMatch(chunkBase + pos);
+                }
+            }, ops));
+            if (len < buf.length) {
+                break; // end of text
+            }
+            if (matches.done()) {
+                long t = System.nanoTime();
+                textLength += skip(text, buf);
+                readNanos += System.nanoTime() - t;
+                break;
+            }
+            keep = Math.min(carry, len);
+            System.arraycopy(buf, len - keep, buf, 0, keep);
+            base += len - keep;
+            long t = System.nanoTime();
+            len = fill(text, buf, keep);
+            readNanos += System.nanoTime() - t;
+            if (len == keep) {
+                break; // nothing new; the carried chars alone are too short to match
+            }
+            textLength += len - keep;
+        }
+        MatcherEvents.commit(searching, header.dataset, matcher.engine(), matches, header.pattern.length(),
+                textLength);
+        long elapsedNanos = System.nanoTime() - start - readNanos;
+
+        double elapsedMillis = elapsedNanos / 1_000_000.0;
+
+        return result(header.dataset, header.pattern, matcher.engine(), textLength, matches, ops, elapsedMillis);
+    }
+
+    /**
+     * Streaming counterpart of the Aho–Corasick branch of {@link #processAll(Path, boolean)}. Chunks overlap by
+     * the longest pattern's length - 1; matches lying wholly inside the overlap were reported with the
+     * previous chunk and are skipped.
+     */
+    private static List<KMPResult> streamMulti(InputModel header, Reader text, boolean instrumented)
+            throws IOException {
+        OperationCounter ops = instrumented ? new OperationCounter() : null;
+        MatchCollector[] perPattern = newCollectors(header, header.patterns.size());
+        int[] pending = {perPattern.length};
+        int dictionaryLength = dictionaryLength(header.patterns);
+        CaseFolding folding = CaseFolding.parse(header.folding);
+        String engine = folding.engine(AHO_CORASICK);
+        long start = System.nanoTime();
+        long readNanos = 0;
+        MatcherEvents.Compile compiling = new MatcherEvents.Compile();
+        compiling.begin();
+        AhoCorasickMatcher ac = AhoCorasickMatcher.compile(fold(header.patterns, folding), ops);
+        MatcherEvents.commit(compiling, header.dataset, engine, dictionaryLength, 0);
+        MatcherEvents.Search searching = new MatcherEvents.Search();
+        searching.begin();
+        int longest = 0;
+        for (int p = 0; p < ac.patternCount(); p++) {
+            longest = Math.max(longest, ac.pattern(p).length());
+        }
+        int carry = Math.max(longest - 1, 0);
+        char[] buf = new char[carry + STREAM_CHUNK];
+        long base = 0;
+        long textLength = 0;
+        int keep = 0;
+        while (true) {
+            long t = System.nanoTime();
+            int len = fill(text, buf, keep);
+            readNanos += System.nanoTime() - t;
+            if (len == keep && textLength > 0) {
+                break;
+            }
+            textLength += len - keep;
+            long chunkBase = base;
+            int fresh = keep;
+            int chunkLength = len;
+            MatchCollector.run(() -> ac.search(folding.view(CharBuffer.wrap(buf, 0, chunkLength)), (id, pos) -> {
+                if (pos + ac.pattern(id).length() > fresh && perPattern[id].offer(chunkBase + pos)
+                        && --pending[0] == 0) {
+                    throw SearchStop.INSTANCE;
+                }
+            }, ops));
+            if (len < buf.length) {
+                break;
+            }
+            if (pending[0] == 0) {
+                t = System.nanoTime();
+                textLength += skip(text, buf);
+                readNanos += System.nanoTime() - t;
+                break;
+            }
+            keep = Math.min(carry, len);
+            System.arraycopy(buf, len - keep, buf, 0, keep);
+            base += len - keep;
+        }
+        commit(searching, header.dataset, engine, perPattern, dictionaryLength, textLength);
+        long elapsedNanos = System.nanoTime() - start - readNanos;
+
+        double elapsedMillis = elapsedNanos / 1_000_000.0;
+
+        return ahoCorasickResults(header.dataset, header.patterns, engine, textLength, perPattern, ops,
+                elapsedMillis);
+    }
+
+    /** Reads into buf from {@code from} until it is full or the text ends; returns the filled length. */
+    private static int fill(Reader text, char[] buf, int from) throws IOException {
+        int len = from;
+        int r;
+        while (len < buf.length && (r = text.read(buf, len, buf.length - len)) >= 0) {
+            len += r;
+        }
+        return len;
+    }
+
+    /** Reads the rest of the text without searching it; returns the number of chars read. */
+    private static long skip(Reader text, char[] buf) throws IOException {
+        long skipped = 0;
+        int r;
+        while ((r = text.read(buf, 0, buf.length)) >= 0) {
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    private static List<KMPResult> singletonOrNull(KMPResult result) {
+        return result == null ? null : List.of(result);
+    }
+
+    private static int dictionaryLength(List<String> patterns) {
+        int length = 0;
+        for (String p : patterns) {
+            length += p.length();
+        }
+        return length;
+    }
+
+    /** Search event of an Aho–Corasick pass: the matches of all patterns together. */
+    private static void commit(MatcherEvents.Search searching, String dataset, String engine,
+                               MatchCollector[] perPattern, int dictionaryLength, long textLength) {
+        long matchCount = 0;
+        for (MatchCollector c : perPattern) {
+            matchCount += c.count();
+        }
+        MatcherEvents.commit(searching, dataset, engine, perPattern[0].mode().id(), dictionaryLength,
+                textLength, matchCount);
+    }
+
+    private static MatchCollector[] newCollectors(InputModel model, int count) {
+        QueryMode mode = QueryMode.parse(model.query);
+        MatchCollector[] collectors = new MatchCollector[count];
+        for (int p = 0; p < count; p++) {
+            collectors[p] = new MatchCollector(mode, model.k);
+        }
+        return collectors;
+    }
+
+    /** Results report the patterns as given, not as folded for the automaton. */
+    private static List<KMPResult> ahoCorasickResults(String dataset, List<String> patterns, String engine,
+                                                      long textLength, MatchCollector[] perPattern,
+                                                      OperationCounter ops, double elapsedMillis) {
+        List<KMPResult> results = new ArrayList<>(patterns.size());
+        for (int p = 0; p < patterns.size(); p++) {
+            results.add(result(dataset, patterns.get(p), engine, textLength, perPattern[p], ops, elapsedMillis));
+        }
+        return results;
+    }
+
+    private static List<String> fold(List<String> patterns, CaseFolding folding) {
+        if (folding == CaseFolding.NONE) {
+            return patterns;
+        }
+        List<String> folded = new ArrayList<>(patterns.size());
+        for (String p : patterns) {
+            folded.add(folding.fold(p)); // NPE for null patterns, as in AhoCorasickMatcher.compile
+        }
+        return folded;
+    }
+
+    /**
+     * Runs every pattern of a dataset ({@code pattern} or {@code patterns}) against a SuffixIndex of its text,
+     * building it at indexFile unless that holds an index of this text already (its stored copy of the
+     * text is compared with the dataset's; timestamps are not trusted). Each pattern gets its own result; lpsComputations is the
+     * index construction work (0 when an existing index is reused) and elapsedMillis the query alone.
+     * A "count" query only measures the suffix-array range, never touching the offsets.
+     */
+    public static List<KMPResult> processIndexed(Path inputFile, Path indexFile, boolean instrumented)
+            throws IOException {
+        return processIndexed(inputFile, indexFile, instrumented, 1);
+    }
+
+    /** Like {@link #processIndexed(Path, Path, boolean)}, running each query {@code repeats} times. */
+    public static List<KMPResult> processIndexed(Path inputFile, Path indexFile, boolean instrumented, int repeats)
+            throws IOException {
+        checkRepeats(repeats);
         InputModel model = JsonIO.read(inputFile, InputModel.class);
-        OperationCounter.reset();
+        List<String> patterns = model.patterns == null || model.patterns.isEmpty()
+                ? Collections.singletonList(model.pattern)
+                : model.patterns;
+        if (model.text == null || patterns.contains(null)) {
+            throw new IllegalArgumentException("Missing \"text\" or \"pattern\" in " + inputFile);
+        }
+        QueryMode mode = QueryMode.parse(model.query);
+        mode.limit(model.k); // validate before building
+        if (CaseFolding.parse(model.folding) != CaseFolding.NONE) {
+            throw new IllegalArgumentException("Case folding is not supported with the suffix-array index: "
+                    + inputFile);
+        }
+
+        OperationCounter buildOps = instrumented ? new OperationCounter() : null;
+        SuffixIndex index = null;
+        if (Files.exists(indexFile)) {
+            index = SuffixIndex.open(indexFile);
+            if (!index.indexes(model.text)) {
+                index.close();
+                index = null;
+            }
+        }
+        if (index == null) {
+            MatcherEvents.Compile building = new MatcherEvents.Compile();
+            building.begin();
+            SuffixIndex.build(model.text, indexFile, buildOps);
+            MatcherEvents.commit(building, model.dataset, SuffixIndex.ENGINE, 0, model.text.length());
+            index = SuffixIndex.open(indexFile);
+        }
+
+        List<KMPResult> results = new ArrayList<>(patterns.size());
+        try (SuffixIndex opened = index) {
+            for (String pattern : patterns) {
+                results.addAll(repeat(repeats, () -> List.of(
+                        queryIndexed(model, opened, pattern, mode, buildOps, instrumented))));
+            }
+        }
+        return results;
+    }
+
+    private static KMPResult queryIndexed(InputModel model, SuffixIndex index, String pattern, QueryMode mode,
+                                          OperationCounter buildOps, boolean instrumented) {
+        OperationCounter ops = instrumented ? new OperationCounter() : null;
+        if (ops != null) {
+            ops.lpsComputations = buildOps.lpsComputations;
+        }
+        MatchCollector matches = new MatchCollector(mode, model.k);
         long start = System.nanoTime();
-        List<Integer> matches = KMPMatcher.search(model.text, model.pattern);
+        MatcherEvents.Search searching = new MatcherEvents.Search();
+        searching.begin();
+        if (mode == QueryMode.COUNT) {
+            matches.tally(index.count(pattern, ops));
+        } else {
+            MatchCollector.run(() -> index.search(pattern, matches::onMatch, ops));
+        }
+        MatcherEvents.commit(searching, model.dataset, SuffixIndex.ENGINE, matches, pattern.length(),
+                model.text.length());
         long elapsedNanos = System.nanoTime() - start;
 
         double elapsedMillis = elapsedNanos / 1_000_000.0;
 
+        return result(model.dataset, pattern, SuffixIndex.ENGINE, model.text.length(), matches, ops, elapsedMillis);
+    }
+
+    public static KMPResult processTextFile(Path textFile, String pattern, Charset charset) throws IOException {
+        return processTextFile(textFile, pattern, charset, true);
+    }
+
+    /**
+     * Searches a raw text file (not a JSON dataset) by memory-mapping it and matching bytes.
+     * textLength and matches are in bytes; the dataset name is the file name.
+     */
+    public static KMPResult processTextFile(Path textFile, String pattern, Charset charset, boolean instrumented)
+            throws IOException {
+        OperationCounter ops = instrumented ? new OperationCounter() : null;
+        String dataset = textFile.getFileName().toString();
+        long start = System.nanoTime();
+        MatcherEvents.Compile compiling = new MatcherEvents.Compile();
+        compiling.begin();
+        BytePattern compiled = BytePattern.compile(pattern, charset, ops);
+        MatcherEvents.commit(compiling, dataset, BYTES_ENGINE, compiled.length(), 0);
+        MatchCollector matches = new MatchCollector(QueryMode.POSITIONS, null);
+        MatcherEvents.Search searching = new MatcherEvents.Search();
+        searching.begin();
+        long size = MappedFileMatcher.search(textFile, compiled, matches, ops);
+        MatcherEvents.commit(searching, dataset, BYTES_ENGINE, matches, compiled.length(), size);
+        long elapsedNanos = System.nanoTime() - start;
+
+        double elapsedMillis = elapsedNanos / 1_000_000.0;
+
+        return result(dataset, pattern, BYTES_ENGINE, size, matches, ops, elapsedMillis);
+    }
+
+    /** Like {@link #processTextFile(Path, String, Charset, boolean)}, searching the file {@code repeats} times. */
+    public static KMPResult processTextFile(Path textFile, String pattern, Charset charset, boolean instrumented,
+                                            int repeats) throws IOException {
+        return repeat(repeats, () -> List.of(processTextFile(textFile, pattern, charset, instrumented))).get(0);
+    }
+
+    @FunctionalInterface
+    private interface Run<X extends Exception> {
+        List<KMPResult> get() throws X;
+    }
+
+    private static void checkRepeats(int repeats) {
+        if (repeats < 1) {
+            throw new IllegalArgumentException("repeats must be positive: " + repeats);
+        }
+    }
+
+    /**
+     * Executes run {@code repeats} times and returns its first results with the latency percentiles of
+     * all runs (one histogram per result row).
+     */
+    private static <X extends Exception> List<KMPResult> repeat(int repeats, Run<X> run) throws X {
+        checkRepeats(repeats);
+        List<KMPResult> first = run.get();
+        if (repeats == 1) {
+            return first;
+        }
+        LatencyHistogram[] latencies = new LatencyHistogram[first.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            latencies[i].record(nanos(first.get(i)));
+        }
+        for (int r = 1; r < repeats; r++) {
+            List<KMPResult> again = run.get();
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i].record(nanos(again.get(i)));
+            }
+        }
+        List<KMPResult> results = new ArrayList<>(first.size());
+        for (int i = 0; i < latencies.length; i++) {
+            results.add(withLatency(first.get(i), latencies[i]));
+        }
+        return results;
+    }
+
+    private static long nanos(KMPResult r) {
+        return Math.round(r.getElapsedMillis() * 1_000_000);
+    }
+
+    private static KMPResult withLatency(KMPResult r, LatencyHistogram latency) {
+        return new KMPResult(
+                r.getDataset(),
+                r.getPattern(),
+                r.getEngine(),
+                r.getQuery(),
+                r.getTextLength(),
+                r.getMatchCount(),
+                r.getMatches(),
+                r.getCharComparisons(),
+                r.getFallbackSteps(),
+                r.getMatchFallbacks(),
+                r.getLpsComputations(),
+                r.getElapsedMillis(),
+                latency.percentileNanos(0.5) / 1_000_000.0,
+                latency.percentileNanos(0.99) / 1_000_000.0,
+                latency.percentileNanos(0.999) / 1_000_000.0
+        );
+    }
+
+    private static KMPResult result(String dataset, String pattern, String engine, long textLength,
+                                    MatchCollector matches, OperationCounter ops, double elapsedMillis) {
+        if (ops == null) {
+            ops = new OperationCounter(); // all zero
+        }
         return new KMPResult(
-                model.dataset,
-                model.pattern,
-                model.text.length(),
-                matches,
-                OperationCounter.charComparisons,
-                OperationCounter.fallbackSteps,
-                OperationCounter.lpsComputations,
+                dataset,
+                pattern,
+                engine,
+                matches.mode().id(),
+                textLength,
+                matches.count(),
+                matches.positions(),
+                ops.charComparisons(),
+                ops.fallbackSteps(),
+                ops.matchFallbacks(),
+                ops.lpsComputations(),
                 elapsedMillis
         );
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,188 @@
+package almat;
+
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * Picks a search engine from the pattern length, an alphabet estimate and the text size.
+ *  - short texts or patterns shorter than {@link #SKIP_MIN_PATTERN}: KMP with the LPS table
+ *    (cheapest preprocessing; skip engines cannot skip much)
+ *  - large alphabets (natural language): bounded Boyer–Moore–Horspool, which reads about n / m chars
+ *    and hands the rest of the text to Two-Way once verifying windows costs more than
+ *    {@code 2n} chars (plain Horspool is O(n * m) in the worst case, so it is never chosen)
+ *  - small alphabets (DNA, binary) with long patterns: Two-Way, linear worst case with longer
+ *    shifts than KMP
+ *  - small alphabets with short patterns on long texts: KMP compiled to a DFA (one lookup per char)
+ * Every automatic choice is therefore O(n) in the worst case. The alphabet is estimated as the number
+ * of distinct chars in the pattern plus a prefix sample of the text, so a text whose prefix is not
+ * representative only costs speed, never the linear bound.
+ *
+ * Every engine can match case-insensitively (CaseFolding). KMP and the bit-parallel engines fold
+ * natively (FoldedPattern, CharMasks); Horspool, Two-Way and kmp-simd compile the folded pattern and
+ * read the text through a folding view, which costs them an extra indirection per char read.
+ */
+public final class EngineSelector {
+
+    public static final String AUTO = "auto";
+    public static final String KMP = "kmp";
+    public static final String KMP_DFA = "kmp-dfa";
+    /** Plain Horspool: opt-in only, since it is O(n * m) in the worst case. */
+    public static final String HORSPOOL = "horspool";
+    /** Horspool with a Two-Way fallback (HorspoolMatcher.compileBounded); chosen for large alphabets. */
+    public static final String HORSPOOL_BOUNDED = "horspool-bounded";
+    public static final String TWO_WAY = "two-way";
+    /** Opt-in only (never chosen automatically): SimdMatcher, reported as "kmp-simd" or "kmp-skip". */
+    public static final String KMP_SIMD = "kmp-simd";
+    /** Opt-in only, patterns of at most 64 chars: bit-parallel ShiftOrMatcher. */
+    public static final String SHIFT_OR = "shift-or";
+    /**
+     * Opt-in approximate engines, named with their error bound: "hamming-k" (ShiftOrMatcher with up to k
+     * mismatches) and "myers-k" (MyersMatcher, up to k edits). Without "-k", k is 1.
+     */
+    public static final String HAMMING = "hamming";
+    public static final String MYERS = "myers";
+
+    /** Texts shorter than this always use plain KMP. */
+    public static final int SMALL_TEXT = 1024;
+    /** Patterns shorter than this never use a skip engine. */
+    public static final int SKIP_MIN_PATTERN = 4;
+    /** Alphabet estimates at or above this count as "large" (natural language). */
+    public static final int LARGE_ALPHABET = 16;
+    /** Chars of the text inspected for the alphabet estimate. */
+    public static final int SAMPLE_CHARS = 4096;
+
+    private EngineSelector() {}
+
+    /** Engine name chosen for pattern over text; does not compile anything. */
+    public static String choose(String pattern, CharSequence text) {
+        int m = pattern.length();
+        int n = text.length();
+        if (m == 0 || n < SMALL_TEXT || m < SKIP_MIN_PATTERN && n < 16 * SMALL_TEXT) {
+            return KMP;
+        }
+        int sigma = estimateAlphabet(pattern, text);
+        if (m >= SKIP_MIN_PATTERN) {
+            return sigma >= LARGE_ALPHABET ? HORSPOOL_BOUNDED : TWO_WAY;
+        }
+        return KMP_DFA;
+    }
+
+    /** Compile pattern for the automatically chosen engine. */
+    public static Matcher select(String pattern, CharSequence text, OperationCounter ops) {
+        return compile(choose(pattern, text), pattern, ops);
+    }
+
+    /** Compile pattern, matched under folding, for the automatically chosen engine. */
+    public static Matcher select(String pattern, CharSequence text, CaseFolding folding, OperationCounter ops) {
+        return compile(choose(pattern, text), pattern, folding, ops);
+    }
+
+    /**
+     * Compile pattern for the named engine ("auto" is not accepted here; see {@link #select}).
+     * @throws IllegalArgumentException for an unknown engine name
+     */
+    public static Matcher compile(String engine, String pattern, OperationCounter ops) {
+        return compile(engine, pattern, CaseFolding.NONE, ops);
+    }
+
+    /**
+     * Compile pattern for the named engine, matching under folding.
+     * @throws IllegalArgumentException for an unknown engine name
+     */
+    public static Matcher compile(String engine, String pattern, CaseFolding folding, OperationCounter ops) {
+        String name = engine.toLowerCase(Locale.ROOT);
+        if (folding != CaseFolding.NONE) {
+            return switch (name) {
+                case KMP -> KMPMatcher.compile(pattern, false, folding, ops);
+                case KMP_DFA -> KMPMatcher.compile(pattern, true, folding, ops);
+                case HORSPOOL, HORSPOOL_BOUNDED, TWO_WAY, KMP_SIMD ->
+                        new FoldedView(compile(name, folding.fold(pattern), ops), pattern, folding);
+                case SHIFT_OR -> ShiftOrMatcher.compile(pattern, 0, folding, ops);
+                default -> {
+                    if (name.startsWith(HAMMING)) {
+                        yield ShiftOrMatcher.compile(pattern, errorBound(name, HAMMING, engine), folding, ops);
+                    }
+                    if (name.startsWith(MYERS)) {
+                        yield MyersMatcher.compile(pattern, errorBound(name, MYERS, engine), folding, ops);
+                    }
+                    throw new IllegalArgumentException("Unknown engine: " + engine);
+                }
+            };
+        }
+        return switch (name) {
+            case KMP -> KMPMatcher.compile(pattern, false, ops);
+            case KMP_DFA -> KMPMatcher.compile(pattern, true, ops);
+            case HORSPOOL -> HorspoolMatcher.compile(pattern, ops);
+            case HORSPOOL_BOUNDED -> HorspoolMatcher.compileBounded(pattern, ops);
+            case TWO_WAY -> TwoWayMatcher.compile(pattern, ops);
+            case KMP_SIMD -> SimdMatcher.compile(pattern, true, ops);
+            case SHIFT_OR -> ShiftOrMatcher.compile(pattern, 0, ops);
+            default -> {
+                if (name.startsWith(HAMMING)) {
+                    yield ShiftOrMatcher.compile(pattern, errorBound(name, HAMMING, engine), ops);
+                }
+                if (name.startsWith(MYERS)) {
+                    yield MyersMatcher.compile(pattern, errorBound(name, MYERS, engine), ops);
+                }
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+            }
+        };
+    }
+
+    /** The k of "family-k" (1 for a bare "family"). */
+    private static int errorBound(String name, String family, String engine) {
+        if (name.length() == family.length()) {
+            return 1;
+        }
+        String suffix = name.substring(family.length());
+        if (suffix.length() > 1 && suffix.length() <= 3 && suffix.charAt(0) == '-'
+                && suffix.chars().skip(1).allMatch(c -> c >= '0' && c <= '9')) {
+            return Integer.parseInt(suffix.substring(1));
+        }
+        throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+
+    /** An engine compiled for the folded pattern, searching a folded view of the text. */
+    private static final class FoldedView implements Matcher {
+        private final Matcher folded;
+        private final String pattern;
+        private final CaseFolding folding;
+
+        FoldedView(Matcher folded, String pattern, CaseFolding folding) {
+            this.folded = folded;
+            this.pattern = pattern;
+            this.folding = folding;
+        }
+
+        @Override
+        public String engine() { return folding.engine(folded.engine()); }
+
+        @Override
+        public String pattern() { return pattern; }
+
+        @Override
+        public long tableBytes() { return folded.tableBytes() + 16 + 2L * pattern.length(); }
+
+        @Override
+        public void search(CharSequence text, int from, int to, IntMatchSink sink) {
+            folded.search(folding.view(text), from, to, sink);
+        }
+
+        @Override
+        public void search(CharSequence text, int from, int to, IntMatchSink sink, OperationCounter ops) {
+            folded.search(folding.view(text), from, to, sink, ops);
+        }
+    }
+
+    /** Distinct chars in the pattern and in the first SAMPLE_CHARS of the text. */
+    static int estimateAlphabet(String pattern, CharSequence text) {
+        BitSet seen = new BitSet(256);
+        for (int i = 0; i < pattern.length(); i++) {
+            seen.set(pattern.charAt(i));
+        }
+        for (int i = 0, n = Math.min(text.length(), SAMPLE_CHARS); i < n; i++) {
+            seen.set(text.charAt(i));
+        }
+        return seen.cardinality();
+    }
+}
@@ -0,0 +1,198 @@
+package almat;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a growing file (tail -f style): every poll searches only the bytes appended since the last
+ * one, carrying the BytePattern KMP state across reads so a match split between two writes is found.
+ *
+ * Progress (byte offset + KMP state) can be persisted to a small JSON checkpoint, written atomically
+ * (temp file + rename), so a restarted follower resumes where it stopped instead of rescanning.
+ * {@link #follow} flushes the match output before each checkpoint, which makes delivery at-least-once:
+ * a crash between the two re-emits the last poll's matches, but never loses any.
+ *
+ * If the file shrinks or is replaced by a different file (new file key) it is searched again from the
+ * start. The checkpoint records the file's identity too, so this also holds for a rotation that
+ * happened while the follower was not running.
+ */
+public final class FileFollower {
+
+    /** Persistent progress; public fields so JsonIO can bind it. */
+    public static final class Checkpoint {
+        public String file;
+        public String pattern;
+        public String charset;
+        /** Bytes of the file searched so far. */
+        public long offset;
+        /** KMP state (matched prefix length) after the last searched byte. */
+        public int state;
+        /** Matches emitted so far. */
+        public long matches;
+        /** Identity of the searched file (see {@link #identity}). */
+        public String fileKey;
+    }
+
+    static final int BUFFER_BYTES = 1 << 16;
+
+    private final Path file;
+    private final BytePattern pattern;
+    private final Path checkpointFile;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private long offset;
+    private int state;
+    private long matches;
+    private String fileKey;
+
+    /**
+     * @param checkpointFile where progress is persisted (null: not persisted); if it exists, following
+     *                       resumes from it
+     * @throws IllegalArgumentException if the checkpoint was written for another file, pattern or charset,
+     *                                  or records no file identity
+     */
+    public FileFollower(Path file, BytePattern pattern, Path checkpointFile) throws IOException {
+        this.file = Objects.requireNonNull(file);
+        this.pattern = Objects.requireNonNull(pattern);
+        this.checkpointFile = checkpointFile;
+        if (checkpointFile != null && Files.exists(checkpointFile)) {
+            Checkpoint c = JsonIO.read(checkpointFile, Checkpoint.class);
+            if (c.file == null || !samePath(file, Path.of(c.file))) {
+                throw new IllegalArgumentException("Checkpoint " + checkpointFile + " was written for file "
+                        + c.file);
+            }
+            if (!pattern.pattern().equals(c.pattern) || !pattern.charset().name().equals(c.charset)) {
+                throw new IllegalArgumentException("Checkpoint " + checkpointFile + " was written for pattern \""
+                        + c.pattern + "\" (" + c.charset + ")");
+            }
+            if (c.fileKey == null || c.offset < 0 || c.state < 0 || c.state >= Math.max(pattern.length(), 1)) {
+                throw new IllegalArgumentException("Corrupt checkpoint " + checkpointFile);
+            }
+            offset = c.offset;
+            state = c.state;
+            matches = c.matches;
+            fileKey = c.fileKey;
+            if (Files.exists(file) && !fileKey.equals(identity(file))) {
+                offset = 0; // replaced while we were down
+                state = 0;
+            }
+        }
+    }
+
+    private static boolean samePath(Path a, Path b) {
+        return a.toAbsolutePath().normalize().equals(b.toAbsolutePath().normalize());
+    }
+
+    /**
+     * The file key (device + inode on Unix) as a string, or the creation time where the file system has
+     * no file keys; either changes when the file is replaced by a new one of the same name.
+     */
+    private static String identity(Path file) throws IOException {
+        return identity(Files.readAttributes(file, BasicFileAttributes.class));
+    }
+
+    private static String identity(BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        return key != null ? key.toString() : "created " + attributes.creationTime();
+    }
+
+    /**
+     * Searches the bytes appended since the last poll and reports the byte offset of every new match.
+     * A missing file counts as empty (it may not have been created yet).
+     * @return number of new bytes searched
+     */
+    public long poll(LongMatchSink sink) throws IOException {
+        long start;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            String key = identity(file);
+            long size = channel.size();
+            if (size < offset || (fileKey != null && !fileKey.equals(key))) {
+                offset = 0; // truncated or rotated
+                state = 0;
+            }
+            fileKey = key;
+            start = offset;
+            LongMatchSink counting = pos -> {
+                matches++;
+                sink.onMatch(pos);
+            };
+            while (offset < size) {
+                buffer.clear();
+                int read = channel.read(buffer, offset);
+                if (read <= 0) {
+                    break;
+                }
+                state = pattern.advance(buffer.array(), 0, read, state, offset, counting);
+                offset += read;
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        return offset - start;
+    }
+
+    /**
+     * Atomically replaces the checkpoint file with the current progress (no-op without one, or while
+     * the file has never been found: there is no progress to keep yet).
+     */
+    public void checkpoint() throws IOException {
+        if (checkpointFile == null || fileKey == null) {
+            return;
+        }
+        Checkpoint c = new Checkpoint();
+        c.file = file.toString();
+        c.pattern = pattern.pattern();
+        c.charset = pattern.charset().name();
+        c.offset = offset;
+        c.state = state;
+        c.matches = matches;
+        c.fileKey = fileKey;
+        Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        JsonIO.write(tmp, c);
+        Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Polls until the thread is interrupted. Wakes up on any change in the file's directory, or after
+     * {@code pollMillis} at the latest (some file systems deliver no watch events). After a poll that
+     * read new bytes, {@code output} is flushed and then the checkpoint written.
+     */
+    public void follow(LongMatchSink sink, Flushable output, long pollMillis) throws IOException, InterruptedException {
+        Path dir = file.toAbsolutePath().getParent();
+        try (WatchService watcher = dir.getFileSystem().newWatchService()) {
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (!Thread.currentThread().isInterrupted()) {
+                if (poll(sink) > 0) {
+                    output.flush();
+                    checkpoint();
+                }
+                WatchKey key = watcher.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        }
+    }
+
+    /** Bytes of the file searched so far. */
+    public long offset() { return offset; }
+
+    /** KMP state carried into the next poll. */
+    public int state() { return state; }
+
+    /** Matches reported so far, including those before a restored checkpoint. */
+    public long matches() { return matches; }
+}
@@ -0,0 +1,142 @@
+package almat;
+
+import java.util.Objects;
+
+/**
+ * Case-insensitive KMP: CompiledPattern over the folded pattern, folding each text char with one table
+ * lookup as the scan reads it. The text is not copied and offsets refer to it unchanged.
+ * Like CompiledPattern, a DFA over the folded alphabet replaces the LPS loop when it is small enough.
+ * Engine names are those of CompiledPattern with the folding appended ("kmp+ascii", "kmp-dfa+unicode").
+ * Time: O(m) or O(R * m) to compile, O(n) to search
+ * Space: O(m) or O(R * m), plus the shared 128 KB fold table
+ */
+public final class FoldedPattern implements Matcher {
+
+    private final String pattern;
+    private final CaseFolding folding;
+    private final char[] fold;
+    private final char[] chars; // folded pattern
+    private final int[] lps;
+    private final int[][] dfa; // null when the LPS scan is used
+
+    FoldedPattern(String pattern, CaseFolding folding, boolean allowDfa, OperationCounter ops) {
+        if (folding == CaseFolding.NONE) {
+            throw new IllegalArgumentException("FoldedPattern needs a case folding; use CompiledPattern");
+        }
+        this.pattern = pattern;
+        this.folding = folding;
+        this.fold = folding.table();
+        String folded = folding.fold(pattern); // NPE for null pattern
+        this.chars = folded.toCharArray();
+        this.lps = KMPMatcher.buildLps(folded, ops);
+        this.dfa = allowDfa ? CompiledPattern.buildDfa(chars, lps) : null;
+    }
+
+    @Override
+    public String engine() { return folding.engine(dfa != null ? EngineSelector.KMP_DFA : EngineSelector.KMP); }
+
+    @Override
+    public String pattern() { return pattern; }
+
+    public CaseFolding folding() { return folding; }
+
+    /** Folded pattern chars, LPS and DFA, with array headers (the fold table is shared). */
+    @Override
+    public long tableBytes() {
+        long bytes = 16 + 2L * pattern.length() + 16 + 2L * chars.length + 16 + 4L * lps.length;
+        if (dfa != null) {
+            bytes += 16 + 4L * dfa.length + dfa.length * (16 + 4L * dfa[0].length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink) {
+        Objects.checkFromToIndex(from, to, text.length());
+        int m = chars.length;
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        char[] fold = this.fold;
+        if (dfa != null) {
+            int[][] dfa = this.dfa;
+            int r = dfa.length;
+            int j = 0;
+            for (int i = from; i < to; i++) {
+                char c = fold[text.charAt(i)];
+                j = c < r ? dfa[c][j] : 0;
+                if (j == m) {
+                    sink.onMatch(i - m + 1);
+                }
+            }
+            return;
+        }
+        int j = 0;
+        for (int i = from; i < to; ) {
+            if (fold[text.charAt(i)] == chars[j]) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(i - m);
+                    j = lps[j - 1];
+                }
+            } else if (j != 0) {
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /** Instrumented scan; counts exactly like CompiledPattern, each comparison of a folded char. */
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink, OperationCounter ops) {
+        if (ops == null) {
+            search(text, from, to, sink);
+            return;
+        }
+        Objects.checkFromToIndex(from, to, text.length());
+        int m = chars.length;
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        if (dfa != null) {
+            int r = dfa.length;
+            boolean overlapReset = lps[m - 1] != 0;
+            int j = 0;
+            for (int i = from; i < to; i++) {
+                char c = fold[text.charAt(i)];
+                ops.charComparisons++;
+                j = c < r ? dfa[c][j] : 0;
+                if (j == m) {
+                    sink.onMatch(i - m + 1);
+                    if (overlapReset) {
+                        ops.matchFallbacks++;
+                    }
+                }
+            }
+            return;
+        }
+        int j = 0;
+        for (int i = from; i < to; ) {
+            ops.charComparisons++;
+            if (fold[text.charAt(i)] == chars[j]) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(i - m);
+                    int nextJ = lps[j - 1];
+                    if (nextJ != 0) {
+                        ops.matchFallbacks++;
+                    }
+                    j = nextJ;
+                }
+            } else if (j != 0) {
+                ops.fallbackSteps++;
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+    }
+}
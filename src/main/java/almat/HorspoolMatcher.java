@@ -0,0 +1,153 @@
+package almat;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Boyer–Moore–Horspool matcher.
+ * Looks at the window's last char first and shifts by the bad-character distance of that char,
+ * so on large alphabets it skips most of the text: expected O(n / m) comparisons, O(n * m) worst case.
+ * The shift table has 256 entries indexed by the low byte of the char; chars sharing a low byte
+ * keep the smallest shift, which is always safe.
+ *
+ * The bounded variant ("horspool-bounded", what EngineSelector picks) caps the chars spent verifying
+ * windows at {@link #VERIFY_BUDGET} per text char; past that the text is repetitive enough to hurt
+ * Horspool (e.g. "b" + "a".repeat(m - 1) over "aaaa…") and the rest of it is searched with Two-Way,
+ * so the search stays O(n) while typical texts never reach the cap.
+ * Time: O(m) to compile
+ * Space: O(m + 256)
+ */
+public final class HorspoolMatcher implements Matcher {
+
+    private static final int TABLE_SIZE = 256;
+    /** Verification chars allowed per text char before the bounded variant hands over to Two-Way. */
+    static final int VERIFY_BUDGET = 2;
+
+    private final String pattern;
+    private final char[] chars;
+    private final int[] shift;
+    private final TwoWayMatcher fallback; // null: unbounded
+
+    private HorspoolMatcher(String pattern, boolean bounded, OperationCounter ops) {
+        this.pattern = pattern;
+        this.chars = pattern.toCharArray(); // NPE for null pattern
+        int m = chars.length;
+        this.shift = new int[TABLE_SIZE];
+        Arrays.fill(shift, Math.max(m, 1));
+        for (int i = 0; i < m - 1; i++) {
+            int slot = chars[i] & (TABLE_SIZE - 1);
+            shift[slot] = Math.min(shift[slot], m - 1 - i);
+        }
+        if (ops != null) {
+            ops.lpsComputations += Math.max(m - 1, 0);
+        }
+        this.fallback = bounded ? TwoWayMatcher.compile(pattern, ops) : null;
+    }
+
+    public static HorspoolMatcher compile(String pattern) {
+        return new HorspoolMatcher(pattern, false, null);
+    }
+
+    /** Counts shift-table construction steps into ops.lpsComputations when ops is non-null. */
+    public static HorspoolMatcher compile(String pattern, OperationCounter ops) {
+        return new HorspoolMatcher(pattern, false, ops);
+    }
+
+    /**
+     * The bounded variant, linear in the worst case; also counts the Two-Way factorization into
+     * ops.lpsComputations when ops is non-null.
+     */
+    public static HorspoolMatcher compileBounded(String pattern, OperationCounter ops) {
+        return new HorspoolMatcher(pattern, true, ops);
+    }
+
+    @Override
+    public String engine() { return fallback != null ? EngineSelector.HORSPOOL_BOUNDED : EngineSelector.HORSPOOL; }
+
+    /** Shift table and pattern chars, plus the Two-Way fallback's copy of them when bounded. */
+    @Override
+    public long tableBytes() {
+        long bytes = 16 + 2L * chars.length + 16 + 4L * shift.length;
+        return fallback != null ? bytes + fallback.tableBytes() : bytes;
+    }
+
+    @Override
+    public String pattern() { return pattern; }
+
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink) {
+        Objects.checkFromToIndex(from, to, text.length());
+        int m = chars.length;
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        char[] p = chars;
+        int[] shift = this.shift;
+        int last = m - 1;
+        char lastChar = p[last];
+        long budget = fallback != null ? (long) VERIFY_BUDGET * (to - from) : Long.MAX_VALUE;
+        for (int i = from, end = to - m; i <= end; ) {
+            char c = text.charAt(i + last);
+            if (c == lastChar) {
+                int k = last - 1;
+                while (k >= 0 && text.charAt(i + k) == p[k]) {
+                    k--;
+                }
+                if (k < 0) {
+                    sink.onMatch(i);
+                }
+                budget -= last - k;
+                if (budget < 0) { // only reachable when bounded
+                    fallback.search(text, i + shift[c & (TABLE_SIZE - 1)], to, sink);
+                    return;
+                }
+            }
+            i += shift[c & (TABLE_SIZE - 1)];
+        }
+    }
+
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink, OperationCounter ops) {
+        if (ops == null) {
+            search(text, from, to, sink);
+            return;
+        }
+        Objects.checkFromToIndex(from, to, text.length());
+        int m = chars.length;
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        int last = m - 1;
+        long budget = fallback != null ? (long) VERIFY_BUDGET * (to - from) : Long.MAX_VALUE;
+        for (int i = from, end = to - m; i <= end; ) {
+            char c = text.charAt(i + last);
+            ops.charComparisons++;
+            boolean matched = false;
+            if (c == chars[last]) {
+                int k = last - 1;
+                while (k >= 0) {
+                    ops.charComparisons++;
+                    if (text.charAt(i + k) != chars[k]) {
+                        break;
+                    }
+                    k--;
+                }
+                if (k < 0) {
+                    sink.onMatch(i);
+                    matched = true;
+                }
+                budget -= last - k;
+            }
+            if (matched) {
+                ops.matchFallbacks++;
+            } else {
+                ops.fallbackSteps++;
+            }
+            i += shift[c & (TABLE_SIZE - 1)];
+            if (budget < 0) {
+                fallback.search(text, i, to, sink, ops);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package almat;
+
+import java.util.Arrays;
+
+/**
+ * Growable int[] used to collect match offsets without boxing.
+ * Not thread-safe; use one instance per search.
+ */
+public final class IntList implements IntMatchSink {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] data;
+    private int size;
+
+    public IntList() {
+        this.data = EMPTY;
+    }
+
+    public IntList(int initialCapacity) {
+        this.data = initialCapacity == 0 ? EMPTY : new int[initialCapacity];
+    }
+
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, Math.max(8, size + (size >> 1)));
+        }
+        data[size++] = value;
+    }
+
+    @Override
+    public void onMatch(int position) {
+        add(position);
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return data[index];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() { size = 0; }
+
+    /** Trimmed copy of the collected values. */
+    public int[] toArray() {
+        return size == 0 ? EMPTY : Arrays.copyOf(data, size);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
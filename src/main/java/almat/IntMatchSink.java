@@ -0,0 +1,9 @@
+package almat;
+
+/**
+ * Receives match start offsets as primitives, so reporting a match never boxes.
+ */
+@FunctionalInterface
+public interface IntMatchSink {
+    void onMatch(int position);
+}
@@ -1,11 +1,19 @@
 package almat;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.StreamWriteFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 /**
  * Utility for JSON read/write using Jackson.
@@ -13,6 +21,11 @@ import java.nio.file.Path;
 public final class JsonIO {
     private static final ObjectMapper MAPPER = new ObjectMapper()
             .enable(SerializationFeature.INDENT_OUTPUT);
+    /** Same settings, but leaves caller-owned streams open. */
+    private static final ObjectMapper STREAM_MAPPER = MAPPER.copy()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET.mappedFeature());
+
+    private static final int BUFFER_BYTES = 1 << 16;
 
     private JsonIO() {}
 
@@ -20,8 +33,72 @@ public final class JsonIO {
         return MAPPER.readValue(Files.readString(path), clazz);
     }
 
+    /** Reads one value from in; the stream is not closed. */
+    public static <T> T read(InputStream in, Class<T> clazz) throws IOException {
+        return MAPPER.readerFor(clazz).without(StreamReadFeature.AUTO_CLOSE_SOURCE).readValue(in);
+    }
+
+    /** Writes value to out and flushes it; the stream is not closed. */
+    public static void write(OutputStream out, Object value) throws IOException {
+        STREAM_MAPPER.writeValue(out, value);
+    }
+
     public static void write(Path path, Object value) throws IOException {
-        String json = MAPPER.writeValueAsString(value);
-        Files.writeString(path, json);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_BYTES)) {
+            MAPPER.writeValue(out, value);
+        }
+    }
+
+    /**
+     * Writes results with a JsonGenerator, field by field and match by match, so nothing proportional to
+     * the number of matches is buffered. The bytes are identical to {@code write(path, value)}: a single
+     * result as one object, several as an array.
+     */
+    public static void writeResults(Path path, List<KMPResult> results) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_BYTES)) {
+            writeResults(out, results);
+        }
+    }
+
+    /** Same as {@link #writeResults(Path, List)}, to out (flushed, not closed). */
+    public static void writeResults(OutputStream out, List<KMPResult> results) throws IOException {
+        try (JsonGenerator g = STREAM_MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            g.useDefaultPrettyPrinter();
+            if (results.size() == 1) {
+                writeResult(g, results.get(0));
+            } else {
+                g.writeStartArray();
+                for (KMPResult r : results) {
+                    writeResult(g, r);
+                }
+                g.writeEndArray();
+            }
+        }
+    }
+
+    /** Same field order as KMPResult's getters, which is what ObjectMapper emits. */
+    private static void writeResult(JsonGenerator g, KMPResult r) throws IOException {
+        g.writeStartObject();
+        g.writeStringField("dataset", r.getDataset());
+        g.writeStringField("pattern", r.getPattern());
+        g.writeStringField("engine", r.getEngine());
+        g.writeStringField("query", r.getQuery());
+        g.writeNumberField("textLength", r.getTextLength());
+        g.writeNumberField("matchCount", r.getMatchCount());
+        g.writeFieldName("matches");
+        g.writeStartArray();
+        for (long m : r.getMatches()) {
+            g.writeNumber(m);
+        }
+        g.writeEndArray();
+        g.writeNumberField("charComparisons", r.getCharComparisons());
+        g.writeNumberField("fallbackSteps", r.getFallbackSteps());
+        g.writeNumberField("matchFallbacks", r.getMatchFallbacks());
+        g.writeNumberField("lpsComputations", r.getLpsComputations());
+        g.writeNumberField("elapsedMillis", r.getElapsedMillis());
+        g.writeNumberField("p50Millis", r.getP50Millis());
+        g.writeNumberField("p99Millis", r.getP99Millis());
+        g.writeNumberField("p999Millis", r.getP999Millis());
+        g.writeEndObject();
     }
 }
\ No newline at end of file
@@ -4,7 +4,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Knuth–Morris–Pratt Matcher with instrumentation.
+ * Knuth–Morris–Pratt Matcher with optional instrumentation.
+ * Overloads taking an OperationCounter count operations into it; the others run loops with no
+ * counter writes at all.
  * Time: O(n + m)
  * Space: O(m)
  */
@@ -13,17 +15,25 @@ public final class KMPMatcher {
     private KMPMatcher() {}
 
     /**
-     * Build the LPS array for the given pattern.
-     * Increments OperationCounter.lpsComputations on each step involving a comparison/fallback.
+     * Build the LPS array for the given pattern (uninstrumented).
      */
     public static int[] buildLps(String pattern) {
+        return buildLps(pattern, null);
+    }
+
+    /**
+     * Build the LPS array for the given pattern.
+     * Increments ops.lpsComputations on each step involving a comparison/fallback (when ops is non-null).
+     */
+    public static int[] buildLps(String pattern, OperationCounter ops) {
         int m = pattern.length();
         int[] lps = new int[m];
+        long steps = 0;
         int len = 0; // length of current longest prefix-suffix
         int i = 1;
 
         while (i < m) {
-            OperationCounter.lpsComputations++;
+            steps++;
             if (pattern.charAt(i) == pattern.charAt(len)) {
                 len++;
                 lps[i] = len;
@@ -37,54 +47,166 @@ public final class KMPMatcher {
                 }
             }
         }
+        if (ops != null) {
+            ops.lpsComputations += steps;
+        }
         return lps;
     }
 
     /**
-     * Returns start indices of all occurrences of pattern in text.
-     * Instrumentation:
+     * Returns start indices of all occurrences of pattern in text (uninstrumented).
+     * Convenience wrapper over {@link #search(String, String, IntMatchSink)}; boxes every offset.
+     */
+    public static List<Integer> search(String text, String pattern) {
+        return search(text, pattern, (OperationCounter) null);
+    }
+
+    /**
+     * Instrumented variant of {@link #search(String, String)}; see
+     * {@link #search(String, String, IntMatchSink, OperationCounter)}.
+     */
+    public static List<Integer> search(String text, String pattern, OperationCounter ops) {
+        List<Integer> result = new ArrayList<>();
+        search(text, pattern, result::add, ops);
+        return result;
+    }
+
+    /**
+     * Reports the start index of every occurrence of pattern in text to sink, in increasing order.
+     * Uninstrumented: the scan loop contains no counter writes.
+     */
+    public static void search(String text, String pattern, IntMatchSink sink) {
+        search(text, pattern, sink, null);
+    }
+
+    /**
+     * Reports the start index of every occurrence of pattern in text to sink, in increasing order.
+     * Allocates nothing per match (only the LPS array per call).
+     * Instrumentation (skipped entirely when ops is null):
      *  - charComparisons incremented on each character comparison
      *  - fallbackSteps incremented on mismatch-driven fallback
      *  - matchFallbacks incremented when resetting j after a successful match (enables overlaps)
+     *  - lpsComputations incremented while building the LPS array
      */
-    public static List<Integer> search(String text, String pattern) {
+    public static void search(String text, String pattern, IntMatchSink sink, OperationCounter ops) {
         // NPEs intentionally thrown if text or pattern is null (caught by tests)
-        List<Integer> result = new ArrayList<>();
         if (pattern.isEmpty() || text.isEmpty()) {
-            return result;
+            return;
+        }
+        int[] lps = buildLps(pattern, ops);
+        if (ops == null) {
+            searchUninstrumented(text, pattern, lps, sink);
+            return;
         }
-        int[] lps = buildLps(pattern);
         int i = 0; // text index
         int j = 0; // pattern index
 
         while (i < text.length()) {
-            OperationCounter.charComparisons++;
+            ops.charComparisons++;
             if (text.charAt(i) == pattern.charAt(j)) {
                 i++;
                 j++;
                 if (j == pattern.length()) {
                     // Found a full match
-                    result.add(i - j);
+                    sink.onMatch(i - j);
                     // Post-match reset allows overlapping matches
                     int nextJ = lps[j - 1];
                     if (nextJ != 0) {
-                        OperationCounter.matchFallbacks++; // this is the overlap-enabling reset
+                        ops.matchFallbacks++; // this is the overlap-enabling reset
                     }
                     j = nextJ;
                 }
             } else {
                 if (j != 0) {
                     // Mismatch fallback driven by LPS
-                    OperationCounter.fallbackSteps++;
+                    ops.fallbackSteps++;
                     j = lps[j - 1];
                 } else {
                     i++;
                 }
             }
         }
+    }
+
+    /** Same loop as the instrumented search, minus every counter write. */
+    private static void searchUninstrumented(String text, String pattern, int[] lps, IntMatchSink sink) {
+        int n = text.length();
+        int m = pattern.length();
+        int i = 0;
+        int j = 0;
+        while (i < n) {
+            if (text.charAt(i) == pattern.charAt(j)) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(i - j);
+                    j = lps[j - 1];
+                }
+            } else if (j != 0) {
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Preprocess pattern once for reuse across many texts and threads.
+     * A DFA is built automatically when the pattern's alphabet is small enough.
+     */
+    public static CompiledPattern compile(String pattern) {
+        return new CompiledPattern(pattern, true, null);
+    }
+
+    /**
+     * Same as {@link #compile(String)}, but {@code allowDfa = false} keeps the O(m) LPS-only layout.
+     */
+    public static CompiledPattern compile(String pattern, boolean allowDfa) {
+        return new CompiledPattern(pattern, allowDfa, null);
+    }
+
+    /**
+     * Same as {@link #compile(String, boolean)}; counts LPS construction steps into ops when non-null.
+     */
+    public static CompiledPattern compile(String pattern, boolean allowDfa, OperationCounter ops) {
+        return new CompiledPattern(pattern, allowDfa, ops);
+    }
+
+    /**
+     * Compile pattern for case-insensitive matching under folding (a CompiledPattern for NONE).
+     * Offsets found refer to the unfolded text, which is never copied.
+     */
+    public static Matcher compile(String pattern, boolean allowDfa, CaseFolding folding, OperationCounter ops) {
+        return folding == CaseFolding.NONE
+                ? new CompiledPattern(pattern, allowDfa, ops)
+                : new FoldedPattern(pattern, folding, allowDfa, ops);
+    }
+
+    /**
+     * Start indices of all occurrences of pattern in text when chars are compared under folding,
+     * e.g. {@code search(text, "goal", CaseFolding.UNICODE)} also finds "GOAL" and "Goal".
+     */
+    public static List<Integer> search(String text, String pattern, CaseFolding folding) {
+        List<Integer> result = new ArrayList<>();
+        compile(pattern, true, folding, null).search(text, result::add);
         return result;
     }
 
+    /** Whether pattern occurs in text; stops at the first match (see {@link Matcher#exists}). */
+    public static boolean exists(String text, String pattern) {
+        return compile(pattern, false).exists(text);
+    }
+
+    /** Number of occurrences of pattern in text, counted without collecting offsets. */
+    public static long count(String text, String pattern) {
+        return compile(pattern, false).count(text);
+    }
+
+    /** Start indices of the first k occurrences of pattern in text; stops at the k-th. */
+    public static int[] first(String text, String pattern, int k) {
+        return compile(pattern, false).first(text, k);
+    }
+
     public static List<Integer> match(String text, String pattern) {
         return search(text, pattern);
     }
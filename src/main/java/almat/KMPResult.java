@@ -1,49 +1,124 @@
 package almat;
 
-import java.util.List;
-
 /**
  * Immutable result object capturing matches and instrumentation metrics.
  * elapsedMillis is used (ms) instead of nanos.
+ * Match offsets are held as a primitive long[] (serialized as a plain JSON array), since
+ * byte offsets into mapped files may exceed 2^31.
+ * query records the QueryMode the search ran in; matches holds every offset only for "positions",
+ * so matchCount, not matches.length, is the number of matches found.
+ * p50Millis / p99Millis / p999Millis are percentiles of elapsedMillis over repeated runs (see
+ * DatasetProcessor); with a single run all three equal elapsedMillis.
  */
 public final class KMPResult {
     private final String dataset;
     private final String pattern;
-    private final int textLength;
-    private final List<Integer> matches;
+    private final String engine;
+    private final String query;
+    private final long textLength;
+    private final long matchCount;
+    private final long[] matches;
     private final long charComparisons;
     private final long fallbackSteps;
+    private final long matchFallbacks;
     private final long lpsComputations;
     private final double elapsedMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double p999Millis;
 
+    /** Result of a "positions" query: matchCount is matches.length. */
     public KMPResult(String dataset,
                      String pattern,
-                     int textLength,
-                     List<Integer> matches,
+                     String engine,
+                     long textLength,
+                     long[] matches,
                      long charComparisons,
                      long fallbackSteps,
+                     long matchFallbacks,
                      long lpsComputations,
                      double elapsedMillis) {
+        this(dataset, pattern, engine, QueryMode.POSITIONS.id(), textLength, matches.length, matches,
+                charComparisons, fallbackSteps, matchFallbacks, lpsComputations, elapsedMillis);
+    }
+
+    public KMPResult(String dataset,
+                     String pattern,
+                     String engine,
+                     String query,
+                     long textLength,
+                     long matchCount,
+                     long[] matches,
+                     long charComparisons,
+                     long fallbackSteps,
+                     long matchFallbacks,
+                     long lpsComputations,
+                     double elapsedMillis) {
+        this(dataset, pattern, engine, query, textLength, matchCount, matches, charComparisons, fallbackSteps,
+                matchFallbacks, lpsComputations, elapsedMillis, elapsedMillis, elapsedMillis, elapsedMillis);
+    }
+
+    public KMPResult(String dataset,
+                     String pattern,
+                     String engine,
+                     String query,
+                     long textLength,
+                     long matchCount,
+                     long[] matches,
+                     long charComparisons,
+                     long fallbackSteps,
+                     long matchFallbacks,
+                     long lpsComputations,
+                     double elapsedMillis,
+                     double p50Millis,
+                     double p99Millis,
+                     double p999Millis) {
         this.dataset = dataset;
         this.pattern = pattern;
+        this.engine = engine;
+        this.query = query;
         this.textLength = textLength;
+        this.matchCount = matchCount;
         this.matches = matches;
         this.charComparisons = charComparisons;
         this.fallbackSteps = fallbackSteps;
+        this.matchFallbacks = matchFallbacks;
         this.lpsComputations = lpsComputations;
         this.elapsedMillis = elapsedMillis;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.p999Millis = p999Millis;
     }
 
     public String getDataset() { return dataset; }
     public String getPattern() { return pattern; }
-    public int getTextLength() { return textLength; }
-    public List<Integer> getMatches() { return matches; }
+
+    /**
+     * Search engine that produced the matches (e.g. "kmp", "horspool", "aho-corasick").
+     */
+    public String getEngine() { return engine; }
+
+    /**
+     * Query mode the search ran in ("positions", "count", "exists", "first-k").
+     */
+    public String getQuery() { return query; }
+    public long getTextLength() { return textLength; }
+
+    /**
+     * Matches found: all of them for "positions" and "count", at most 1 for "exists" and k for "first-k".
+     */
+    public long getMatchCount() { return matchCount; }
+    public long[] getMatches() { return matches; }
     public long getCharComparisons() { return charComparisons; }
     public long getFallbackSteps() { return fallbackSteps; }
+    public long getMatchFallbacks() { return matchFallbacks; }
     public long getLpsComputations() { return lpsComputations; }
 
     /**
      * Elapsed time in milliseconds (may be fractional).
      */
     public double getElapsedMillis() { return elapsedMillis; }
+    public double getP50Millis() { return p50Millis; }
+    public double getP99Millis() { return p99Millis; }
+    public double getP999Millis() { return p999Millis; }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package almat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram in nanoseconds with log-linear buckets (HDR style): every power of two is
+ * split into {@value #SUB_BUCKETS} equal buckets, so a reported percentile is within 1/16 (~6%) of the
+ * true value over the whole long range, in a fixed 976-slot table. Recording is one atomic increment.
+ */
+public final class LatencyHistogram {
+
+    /** A non-empty bucket: values in [fromNanos, toNanos). */
+    public record Bucket(long fromNanos, long toNanos, long count) {}
+
+    static final int SUB_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int SLOTS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    static int index(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exp = index / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1L;
+        }
+        int exp = index / SUB_BUCKETS + SUB_BITS - 1;
+        long upper = lowerBound(index) + (1L << (exp - SUB_BITS));
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    /** Records one value; negative values are recorded as 0. */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        counts.incrementAndGet(index(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() { return count.get(); }
+
+    public long maxNanos() { return max.get(); }
+
+    public double meanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Smallest recorded bucket bound such that at least {@code quantile} of the values are at or below it
+     * (capped at the maximum recorded value); 0 when empty.
+     * @param quantile in [0, 1], e.g. 0.99 for p99
+     */
+    public long percentileNanos(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("quantile must be in [0, 1]: " + quantile);
+        }
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                long upper = upperBound(i);
+                return Math.min(upper == Long.MAX_VALUE ? upper : upper - 1, max.get());
+            }
+        }
+        return max.get(); // values recorded concurrently with this scan
+    }
+
+    public List<Bucket> nonEmptyBuckets() {
+        List<Bucket> buckets = new ArrayList<>();
+        for (int i = 0; i < SLOTS; i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                buckets.add(new Bucket(lowerBound(i), upperBound(i), c));
+            }
+        }
+        return buckets;
+    }
+}
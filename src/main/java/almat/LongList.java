@@ -0,0 +1,54 @@
+package almat;
+
+import java.util.Arrays;
+
+/**
+ * Growable long[] used to collect match offsets without boxing; the long counterpart of IntList
+ * for inputs whose offsets may exceed 2^31.
+ * Not thread-safe; use one instance per search.
+ */
+public final class LongList implements LongMatchSink {
+    private static final long[] EMPTY = new long[0];
+
+    private long[] data;
+    private int size;
+
+    public LongList() {
+        this.data = EMPTY;
+    }
+
+    public void add(long value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, Math.max(8, size + (size >> 1)));
+        }
+        data[size++] = value;
+    }
+
+    @Override
+    public void onMatch(long position) {
+        add(position);
+    }
+
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return data[index];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() { size = 0; }
+
+    /** Trimmed copy of the collected values. */
+    public long[] toArray() {
+        return size == 0 ? EMPTY : Arrays.copyOf(data, size);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
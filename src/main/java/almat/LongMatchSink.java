@@ -0,0 +1,9 @@
+package almat;
+
+/**
+ * Receives absolute match offsets from streaming searches, where inputs may exceed 2^31 chars.
+ */
+@FunctionalInterface
+public interface LongMatchSink {
+    void onMatch(long position);
+}
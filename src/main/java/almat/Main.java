@@ -1,55 +1,181 @@
 package almat;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
 /**
  * Generic driver:
- *  - Discovers all *.json in input/
- *  - Processes them with DatasetProcessor
+ *  - Discovers all *.json in input/ (or the directory given with --input, e.g. generated workloads)
+ *  - Processes them with DatasetProcessor (KMP for "pattern", Aho–Corasick for "patterns"),
+ *    concurrently on virtual threads with at most --parallelism (default: #cores) in flight
  *  - Writes per-dataset JSON results into output/output_{dataset}.json
+ *    (or compact binary output_{dataset}.kmpb with --format binary, see BinaryResults); when several
+ *    inputs have the same dataset name, later ones (in input order) get output_{dataset}_{input}.json
+ *  - Optionally searches raw text files given with --text/--pattern, memory-mapped and matched as bytes
  *  - Writes output/summary.csv (elapsed in milliseconds)
+ *  - --repeat <n> runs every dataset n times; summary.csv and the JSON results then report p50/p99/p999
+ *    of the runs' elapsed time (with one run all three equal elapsedMillis)
+ *  - --no-metrics runs the uninstrumented matchers (counters reported as 0, timing only)
+ *  - --index answers each dataset's patterns from a SuffixIndex of its text, built once into
+ *    output/index_{input}.kmpx and reused by later runs while the text is unchanged
+ *  - --serve <port> instead starts SearchServer on 127.0.0.1 (--max-in-flight bounds concurrent searches)
+ *  - --follow <file> --pattern <p> instead follows a growing file (FileFollower), appending the byte offset
+ *    of each new match to output/follow_{file}.matches and checkpointing to output/follow_{file}.checkpoint.json
  *
  * This removes any need for hardcoded footballSmall/Medium/Large paths.
  */
 public class Main {
     private static final Path INPUT_DIR = Path.of("input");
     private static final Path OUTPUT_DIR = Path.of("output");
+    static final Path SUMMARY_CSV = OUTPUT_DIR.resolve("summary.csv");
+    static final String SUMMARY_HEADER = "dataset,engine,query,textLength,patternLength,matches,charComparisons,fallbackSteps,matchFallbacks,lpsComputations,elapsedMillis,p50Millis,p99Millis,p999Millis";
+    private static final String USAGE =
+            "Usage: Main [--input <dir>] [--parallelism <n>] [--repeat <n>] [--no-metrics] [--index] [--format json|binary] [--text <file> ... --pattern <pattern> [--charset UTF-8|ISO-8859-1|US-ASCII]]\n"
+            + "       Main --serve <port> [--max-in-flight <n>] [--no-metrics]\n"
+            + "       Main --follow <file> --pattern <pattern> [--charset UTF-8|ISO-8859-1|US-ASCII] [--poll-millis <ms>]";
 
     public static void main(String[] args) throws Exception {
-        if (!Files.isDirectory(INPUT_DIR)) {
-            System.err.println("No input/ directory found. Create 'input/' and add *.json datasets.");
+        List<Path> textFiles = new ArrayList<>();
+        String textPattern = null;
+        Charset charset = StandardCharsets.UTF_8;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        int repeat = 1;
+        Path inputDir = INPUT_DIR;
+        boolean instrumented = true;
+        boolean indexed = false;
+        boolean binary = false;
+        Integer servePort = null;
+        Path followFile = null;
+        long pollMillis = 1000;
+        int maxInFlight = SearchServer.DEFAULT_MAX_IN_FLIGHT;
+        for (int a = 0; a < args.length; a++) {
+            String arg = args[a];
+            if (arg.equals("--no-metrics")) {
+                instrumented = false;
+                continue;
+            }
+            if (arg.equals("--index")) {
+                indexed = true;
+                continue;
+            }
+            if (a + 1 >= args.length) {
+                System.err.println("Missing value for " + arg + ". " + USAGE);
+                return;
+            }
+            switch (arg) {
+                case "--input" -> inputDir = Path.of(args[++a]);
+                case "--text" -> textFiles.add(Path.of(args[++a]));
+                case "--pattern" -> textPattern = args[++a];
+                case "--charset" -> charset = Charset.forName(args[++a]);
+                case "--parallelism" -> parallelism = Integer.parseInt(args[++a]);
+                case "--repeat" -> repeat = Integer.parseInt(args[++a]);
+                case "--serve" -> servePort = Integer.parseInt(args[++a]);
+                case "--max-in-flight" -> maxInFlight = Integer.parseInt(args[++a]);
+                case "--follow" -> followFile = Path.of(args[++a]);
+                case "--poll-millis" -> pollMillis = Long.parseLong(args[++a]);
+                case "--format" -> {
+                    String format = args[++a];
+                    if (!format.equals("json") && !format.equals("binary")) {
+                        System.err.println("Unknown format " + format + ". " + USAGE);
+                        return;
+                    }
+                    binary = format.equals("binary");
+                }
+                default -> {
+                    System.err.println("Unknown option " + arg + ". " + USAGE);
+                    return;
+                }
+            }
+        }
+        if (servePort != null) {
+            if (maxInFlight <= 0) {
+                System.err.println("--max-in-flight must be positive. " + USAGE);
+                return;
+            }
+            SearchServer server = SearchServer.start(servePort, maxInFlight, instrumented);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+            System.out.println("Listening on http://127.0.0.1:" + server.port()
+                    + " (POST /search, GET /latency, GET /stats)");
+            return; // the server's dispatcher thread keeps the JVM alive
+        }
+        if (textPattern != null) {
+            try {
+                BytePattern.compile(textPattern, charset); // rejects charsets byte matching cannot handle
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage() + ". " + USAGE);
+                return;
+            }
+        }
+        if (followFile != null) {
+            if (textPattern == null || pollMillis <= 0) {
+                System.err.println("--follow requires --pattern and a positive --poll-millis. " + USAGE);
+                return;
+            }
+            follow(followFile, BytePattern.compile(textPattern, charset), pollMillis);
+            return;
+        }
+        if (parallelism <= 0) {
+            System.err.println("--parallelism must be positive. " + USAGE);
+            return;
+        }
+        if (repeat <= 0) {
+            System.err.println("--repeat must be positive. " + USAGE);
+            return;
+        }
+        if (!textFiles.isEmpty() && textPattern == null) {
+            System.err.println("--text requires --pattern. " + USAGE);
+            return;
+        }
+
+        if (!Files.isDirectory(inputDir) && textFiles.isEmpty()) {
+            System.err.println("No " + inputDir + "/ directory found. Create it and add *.json datasets.");
             return;
         }
 
         Files.createDirectories(OUTPUT_DIR);
 
-        List<Path> inputs = listJsonFiles(INPUT_DIR);
-        if (inputs.isEmpty()) {
-            System.err.println("No *.json files found in input/.");
+        List<Path> inputs = Files.isDirectory(inputDir) ? listJsonFiles(inputDir) : List.of();
+        if (inputs.isEmpty() && textFiles.isEmpty()) {
+            System.err.println("No *.json files found in " + inputDir + "/.");
             return;
         }
 
-        List<KMPResult> results = new ArrayList<>();
-
+        boolean metrics = instrumented;
+        boolean useIndex = indexed;
+        int repeats = repeat;
+        List<Job> jobs = new ArrayList<>();
         for (Path in : inputs) {
-            try {
-                KMPResult r = DatasetProcessor.process(in);
-                results.add(r);
-                Path outFile = OUTPUT_DIR.resolve("output_" + safeName(r.getDataset()) + ".json");
-                writeResult(r, outFile);
-                System.out.println("Processed: " + in.getFileName() + " -> " + outFile.getFileName());
-            } catch (Exception e) {
-                System.err.println("Failed processing " + in + ": " + e.getMessage());
-            }
+            jobs.add(new Job(in.getFileName().toString(), in, () -> useIndex
+                    ? DatasetProcessor.processIndexed(in, indexFile(in), metrics, repeats)
+                    : DatasetProcessor.processAll(in, metrics, repeats)));
+        }
+        for (Path in : textFiles) {
+            String pattern = textPattern;
+            Charset cs = charset;
+            jobs.add(new Job(in.toString(), in,
+                    () -> List.of(DatasetProcessor.processTextFile(in, pattern, cs, metrics, repeats))));
         }
 
+        List<KMPResult> results = runConcurrently(jobs, parallelism, binary);
+
         if (!results.isEmpty()) {
-            Path csv = OUTPUT_DIR.resolve("summary.csv");
+            Path csv = SUMMARY_CSV;
             writeSummaryCsv(results, csv);
             System.out.println("Summary written to: " + csv.toAbsolutePath());
         } else {
@@ -57,6 +183,118 @@ public class Main {
         }
     }
 
+    /**
+     * Runs until interrupted (Ctrl-C). Matches are appended one byte offset per line, so the output can
+     * itself be tailed; a restart resumes from the checkpoint and keeps appending to the same file.
+     */
+    private static void follow(Path file, BytePattern pattern, long pollMillis) throws IOException, InterruptedException {
+        Files.createDirectories(OUTPUT_DIR);
+        String name = safeName(file.getFileName().toString());
+        Path matchesFile = OUTPUT_DIR.resolve("follow_" + name + ".matches");
+        Path checkpoint = OUTPUT_DIR.resolve("follow_" + name + ".checkpoint.json");
+        FileFollower follower = new FileFollower(file, pattern, checkpoint);
+        System.out.println("Following " + file + " from byte " + follower.offset() + " -> " + matchesFile);
+        try (BufferedWriter out = Files.newBufferedWriter(matchesFile, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            follower.follow(pos -> {
+                try {
+                    out.write(Long.toString(pos));
+                    out.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, out, pollMillis);
+        }
+    }
+
+    /** One input to process; {@code work} reads and searches {@code input}. */
+    private record Job(String label, Path input, Callable<List<KMPResult>> work) {}
+
+    /** A finished job: its results, already written to a temp file in output/. */
+    private record Written(List<KMPResult> results, Path tmp) {}
+
+    /**
+     * Runs every job on its own virtual thread, at most {@code parallelism} at a time: a job takes a
+     * permit before it reads its input, so only that many files are read and held in memory at once.
+     * Each job's counters are confined to its own thread. Results are collected in job order, so the
+     * summary keeps the sorted input order no matter which job finishes first.
+     *
+     * Dataset names are only known once an input is read and two inputs may share one, so each job
+     * writes its output to a private temp file; the temp files are then moved into place in job order,
+     * giving the same output names whichever job finishes first and never two writers on one file.
+     */
+    private static List<KMPResult> runConcurrently(List<Job> jobs, int parallelism, boolean binary)
+            throws InterruptedException {
+        Semaphore permits = new Semaphore(parallelism);
+        List<Future<Written>> futures = new ArrayList<>(jobs.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Job job : jobs) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        List<KMPResult> rs = job.work().call();
+                        Path tmp = Files.createTempFile(OUTPUT_DIR, "output_", ".tmp");
+                        try {
+                            writeResult(tmp, rs, binary);
+                        } catch (IOException | RuntimeException e) {
+                            Files.deleteIfExists(tmp);
+                            throw e;
+                        }
+                        return new Written(rs, tmp);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        } // close() waits for every job
+
+        List<KMPResult> results = new ArrayList<>();
+        Set<Path> taken = new HashSet<>();
+        for (int k = 0; k < jobs.size(); k++) {
+            Job job = jobs.get(k);
+            try {
+                Written written = futures.get(k).get();
+                Path out = outputFile(written.results(), job.input(), binary, taken);
+                try {
+                    Files.move(written.tmp(), out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    Files.deleteIfExists(written.tmp());
+                    throw e;
+                }
+                results.addAll(written.results());
+                System.out.println("Processed: " + job.label() + " -> " + out.getFileName());
+            } catch (ExecutionException e) {
+                System.err.println("Failed processing " + job.label() + ": " + e.getCause().getMessage());
+            } catch (IOException e) {
+                System.err.println("Failed writing the output of " + job.label() + ": " + e.getMessage());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * output_{dataset}, or output_{dataset}_{input file name} (then a counter) if an earlier job of this
+     * run already took that name; the chosen name is added to {@code taken}.
+     */
+    private static Path outputFile(List<KMPResult> results, Path input, boolean binary, Set<Path> taken) {
+        String extension = binary ? BinaryResults.EXTENSION : ".json";
+        String base = "output_" + safeName(results.get(0).getDataset());
+        String inputName = input.getFileName().toString();
+        int dot = inputName.lastIndexOf('.');
+        String unique = base + "_" + safeName(dot > 0 ? inputName.substring(0, dot) : inputName);
+        Path out = OUTPUT_DIR.resolve(base + extension);
+        for (int n = 2; !taken.add(out); n++) {
+            out = OUTPUT_DIR.resolve(n == 2 ? unique + extension : unique + "_" + (n - 1) + extension);
+        }
+        return out;
+    }
+
+    private static Path indexFile(Path input) {
+        String name = input.getFileName().toString();
+        return OUTPUT_DIR.resolve("index_" + safeName(name.substring(0, name.length() - ".json".length()))
+                + SuffixIndex.EXTENSION);
+    }
+
     private static List<Path> listJsonFiles(Path dir) throws IOException {
         try (var stream = Files.list(dir)) {
             return stream
@@ -72,24 +310,37 @@ public class Main {
         return dataset.replaceAll("[^a-zA-Z0-9._-]", "_");
     }
 
-    private static void writeResult(KMPResult result, Path out) throws IOException {
-        JsonIO.write(out, result);
+    private static void writeResult(Path out, List<KMPResult> results, boolean binary) throws IOException {
+        if (binary) {
+            BinaryResults.write(out, results);
+        } else {
+            // Single-pattern datasets keep the original one-object layout; multi-pattern ones get an array.
+            JsonIO.writeResults(out, results);
+        }
     }
 
+    /** Written row by row through a buffered writer rather than built up as one String. */
     private static void writeSummaryCsv(List<KMPResult> results, Path out) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        sb.append("dataset,textLength,patternLength,matches,charComparisons,fallbackSteps,lpsComputations,elapsedMillis\n");
-        for (KMPResult r : results) {
-            sb.append(r.getDataset()).append(',')
-                    .append(r.getTextLength()).append(',')
-                    .append(r.getPattern().length()).append(',')
-                    .append(r.getMatches().size()).append(',')
-                    .append(r.getCharComparisons()).append(',')
-                    .append(r.getFallbackSteps()).append(',')
-                    .append(r.getLpsComputations()).append(',')
-                    .append(String.format(Locale.US, "%.3f", r.getElapsedMillis()))
-                    .append('\n');
-        }
-        Files.writeString(out, sb.toString());
+        try (BufferedWriter w = Files.newBufferedWriter(out)) {
+            w.write(SUMMARY_HEADER + "\n");
+            StringBuilder sb = new StringBuilder();
+            for (KMPResult r : results) {
+                sb.setLength(0);
+                sb.append(r.getDataset()).append(',')
+                        .append(r.getEngine()).append(',')
+                        .append(r.getQuery()).append(',')
+                        .append(r.getTextLength()).append(',')
+                        .append(r.getPattern().length()).append(',')
+                        .append(r.getMatchCount()).append(',')
+                        .append(r.getCharComparisons()).append(',')
+                        .append(r.getFallbackSteps()).append(',')
+                        .append(r.getMatchFallbacks()).append(',')
+                        .append(r.getLpsComputations()).append(',')
+                        .append(String.format(Locale.US, "%.3f,%.3f,%.3f,%.3f", r.getElapsedMillis(),
+                                r.getP50Millis(), r.getP99Millis(), r.getP999Millis()))
+                        .append('\n');
+                w.append(sb);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package almat;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Searches files by mapping them into memory (FileChannel.map into a MemorySegment) and
+ * running BytePattern directly over the mapped bytes.
+ * A single mapping covers the whole file (no 2 GB ByteBuffer limit) and is unmapped as soon
+ * as the search returns; the file is never decoded into a String.
+ */
+public final class MappedFileMatcher {
+
+    private MappedFileMatcher() {}
+
+    /**
+     * Reports the byte offset of every occurrence of pattern in file.
+     * @return size of the file in bytes
+     */
+    public static long search(Path file, BytePattern pattern, LongMatchSink sink) throws IOException {
+        return search(file, pattern, sink, null);
+    }
+
+    /**
+     * Same as {@link #search(Path, BytePattern, LongMatchSink)}, counting into ops when non-null.
+     */
+    public static long search(Path file, BytePattern pattern, LongMatchSink sink, OperationCounter ops)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Arena arena = Arena.ofConfined()) {
+            long size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+            pattern.search(segment, 0, size, sink, ops);
+            return size;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package almat;
+
+/**
+ * Collects the matches of one pattern according to a QueryMode: offsets are stored only when the mode
+ * keeps them, and nothing is recorded once the mode's limit is reached.
+ * Not thread-safe; use one instance per search.
+ */
+final class MatchCollector implements LongMatchSink {
+    private static final long[] EMPTY = new long[0];
+
+    private final QueryMode mode;
+    private final long limit;
+    private final LongList positions; // null when only counting
+    private long count;
+
+    /** @param k match limit for FIRST_K (see {@link QueryMode#limit(Integer)}) */
+    MatchCollector(QueryMode mode, Integer k) {
+        this.mode = mode;
+        this.limit = mode.limit(k);
+        this.positions = mode.keepsPositions() ? new LongList() : null;
+    }
+
+    /**
+     * Records a match unless the limit was already reached.
+     * @return true if this match reached the limit
+     */
+    boolean offer(long position) {
+        if (count >= limit) {
+            return false;
+        }
+        count++;
+        if (positions != null) {
+            positions.add(position);
+        }
+        return count == limit;
+    }
+
+    /** Records {@code matches} matches whose offsets are not needed (a COUNT query answered elsewhere). */
+    void tally(long matches) {
+        count += matches;
+    }
+
+    /** Records a match and ends the search with SearchStop when it reaches the limit. */
+    @Override
+    public void onMatch(long position) {
+        if (offer(position)) {
+            throw SearchStop.INSTANCE;
+        }
+    }
+
+    /** Runs a search whose sink may throw SearchStop, returning normally when it was stopped. */
+    static void run(Runnable search) {
+        try {
+            search.run();
+        } catch (SearchStop stop) {
+            // limit reached: the query is answered
+        }
+    }
+
+    boolean done() {
+        return count >= limit;
+    }
+
+    QueryMode mode() { return mode; }
+
+    long count() { return count; }
+
+    long[] positions() {
+        return positions == null ? EMPTY : positions.toArray();
+    }
+}
@@ -0,0 +1,90 @@
+package almat;
+
+/**
+ * A pattern compiled for one search engine.
+ * Implementations are immutable and thread-safe; the uninstrumented overloads contain no counter
+ * writes, and passing a null OperationCounter to the instrumented overload selects them.
+ */
+public interface Matcher {
+
+    /** Engine identifier recorded in KMPResult and summary.csv (e.g. "kmp", "horspool", "two-way"). */
+    String engine();
+
+    String pattern();
+
+    /**
+     * Approximate heap bytes held by the compiled tables, used to weigh entries in PatternCache.
+     * The default counts only the pattern chars.
+     */
+    default long tableBytes() {
+        return 16 + 2L * pattern().length();
+    }
+
+    /**
+     * Most text chars one occurrence can cover: the pattern length, except for approximate matchers.
+     * Chunked searches carry {@code maxSpan() - 1} chars from one chunk into the next.
+     */
+    default int maxSpan() {
+        return pattern().length();
+    }
+
+    /**
+     * Whether reported offsets are where occurrences end (their last char) rather than where they start;
+     * true only for approximate matchers, whose occurrences have no fixed length.
+     */
+    default boolean reportsEnds() {
+        return false;
+    }
+
+    /**
+     * Reports indices (into {@code text}) of all, possibly overlapping, occurrences lying entirely
+     * within [from, to), in increasing order: start offsets, or end offsets if {@link #reportsEnds()}.
+     */
+    void search(CharSequence text, int from, int to, IntMatchSink sink);
+
+    /**
+     * Same as {@link #search(CharSequence, int, int, IntMatchSink)}, counting into ops when non-null.
+     * Every engine maps its work onto the same counters: charComparisons for text/pattern char
+     * comparisons (or table lookups), fallbackSteps for shifts after a mismatch and matchFallbacks
+     * for shifts after a match.
+     */
+    void search(CharSequence text, int from, int to, IntMatchSink sink, OperationCounter ops);
+
+    default void search(CharSequence text, IntMatchSink sink) {
+        search(text, 0, text.length(), sink);
+    }
+
+    /** Whether the pattern occurs in text; the scan stops at the first match. */
+    default boolean exists(CharSequence text) {
+        return first(text, 1).length != 0;
+    }
+
+    /** Number of (possibly overlapping) occurrences in text, tallied without storing offsets. */
+    default long count(CharSequence text) {
+        long[] count = new long[1];
+        search(text, position -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Offsets of the first k occurrences in text (fewer if there are not that many), in increasing
+     * order; the scan stops at the k-th.
+     */
+    default int[] first(CharSequence text, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be >= 1: " + k);
+        }
+        IntList found = new IntList();
+        try {
+            search(text, position -> {
+                found.add(position);
+                if (found.size() == k) {
+                    throw SearchStop.INSTANCE;
+                }
+            });
+        } catch (SearchStop stop) {
+            // k-th match reached
+        }
+        return found.toArray();
+    }
+}
@@ -0,0 +1,147 @@
+package almat;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JDK Flight Recorder events for the two phases of every search: compiling the pattern (or building the
+ * automaton / index) and searching the text. Record them with e.g.
+ * {@code java -XX:StartFlightRecording:filename=rec.jfr ...} and inspect them with
+ * {@code jfr print --events almat.Search rec.jfr}.
+ *
+ * Usage follows the JFR idiom: {@code begin()} before the phase, then {@link #commit} after it, which sets
+ * the fields only if the event is enabled and over its threshold. When no recording is running,
+ * begin / end / shouldCommit are no-ops that the JIT removes together with the event allocation, so the
+ * instrumented phases cost nothing. Only the first use of an event class is expensive: it initializes JFR,
+ * about 150 ms, so classes that time their phases call {@link #load} from a static initializer first.
+ * For a streamed dataset the search event spans the whole chunked search, including decoding the text.
+ * A streamed pass that may still be discarded runs between {@link #defer} and {@link #release}, so only
+ * the events of the pass whose results are kept get recorded.
+ */
+final class MatcherEvents {
+
+    /** Events ended on this thread while deferring; null when not deferring. */
+    private static final ThreadLocal<List<Event>> DEFERRED = new ThreadLocal<>();
+
+    private MatcherEvents() {}
+
+    /** Loads and initializes both event classes (and with them JFR) outside any timed section. */
+    static void load() {
+        Compile compile = new Compile();
+        compile.begin();
+        compile.end();
+        compile.shouldCommit();
+        Search search = new Search();
+        search.begin();
+        search.end();
+        search.shouldCommit();
+    }
+
+    /** Holds back the events this thread commits until {@link #release}. */
+    static void defer() {
+        DEFERRED.set(new ArrayList<>());
+    }
+
+    /** Stops deferring; the held-back events are committed if {@code keep}, else dropped. */
+    static void release(boolean keep) {
+        List<Event> events = DEFERRED.get();
+        DEFERRED.remove();
+        if (keep && events != null) {
+            for (Event event : events) {
+                event.commit(); // keeps the timing recorded by end()
+            }
+        }
+    }
+
+    private static void commit(Event event) {
+        List<Event> deferred = DEFERRED.get();
+        if (deferred != null) {
+            deferred.add(event);
+        } else {
+            event.commit();
+        }
+    }
+
+    @Name("almat.Compile")
+    @Label("Pattern Compile")
+    @Category("KMP String Matching")
+    @Description("Compiling a pattern for a search engine, or building an automaton or index")
+    @StackTrace(false)
+    static final class Compile extends Event {
+        @Label("Dataset")
+        String dataset;
+
+        @Label("Engine")
+        String engine;
+
+        @Label("Pattern Length")
+        @Description("Chars of the pattern; for Aho-Corasick, of all patterns together")
+        int patternLength;
+
+        @Label("Text Length")
+        @Description("Chars of text the engine was chosen for or the index covers; 0 if not known")
+        long textLength;
+    }
+
+    @Name("almat.Search")
+    @Label("Text Search")
+    @Category("KMP String Matching")
+    @Description("Searching a text with a compiled pattern")
+    @StackTrace(false)
+    static final class Search extends Event {
+        @Label("Dataset")
+        String dataset;
+
+        @Label("Engine")
+        String engine;
+
+        @Label("Query")
+        String query;
+
+        @Label("Pattern Length")
+        int patternLength;
+
+        @Label("Text Length")
+        long textLength;
+
+        @Label("Match Count")
+        long matchCount;
+    }
+
+    static void commit(Compile event, String dataset, String engine, int patternLength, long textLength) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.dataset = dataset;
+            event.engine = engine;
+            event.patternLength = patternLength;
+            event.textLength = textLength;
+            commit(event);
+        }
+    }
+
+    static void commit(Search event, String dataset, String engine, String query, int patternLength,
+                       long textLength, long matchCount) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.dataset = dataset;
+            event.engine = engine;
+            event.query = query;
+            event.patternLength = patternLength;
+            event.textLength = textLength;
+            event.matchCount = matchCount;
+            commit(event);
+        }
+    }
+
+    static void commit(Search event, String dataset, String engine, MatchCollector matches, int patternLength,
+                       long textLength) {
+        commit(event, dataset, engine, matches.mode().id(), patternLength, textLength, matches.count());
+    }
+}
@@ -0,0 +1,136 @@
+package almat;
+
+import java.util.Objects;
+
+/**
+ * Approximate matcher for patterns of at most 64 chars: finds every place where the text holds a string
+ * within edit distance k (substitutions, insertions, deletions) of the pattern, using Myers' bit-vector
+ * algorithm. The column of the edit-distance table for the current text char is kept as two longs of
+ * +1/-1 vertical deltas, updated with a handful of word operations per text char.
+ *
+ * An approximate occurrence has no single length, so the reported offset is where it ends (the index of
+ * its last char), once per end position, in increasing order; {@link #maxSpan()} is m + k.
+ *
+ * Instrumentation: charComparisons counts one mask lookup per text char, lpsComputations the m mask
+ * updates of compiling; there are no fallbacks.
+ * Time: O(n)
+ * Space: O(m + 256)
+ */
+public final class MyersMatcher implements Matcher {
+
+    private final String pattern;
+    private final CharMasks masks;
+    private final int maxEdits;
+    private final CaseFolding folding;
+
+    private MyersMatcher(String pattern, int maxEdits, CaseFolding folding, OperationCounter ops) {
+        if (maxEdits < 0) {
+            throw new IllegalArgumentException("maxEdits must be >= 0: " + maxEdits);
+        }
+        this.pattern = pattern;
+        this.maxEdits = maxEdits;
+        this.folding = folding;
+        this.masks = new CharMasks(pattern.toCharArray(), EngineSelector.MYERS + "-" + maxEdits, folding); // NPE for null
+        if (ops != null) {
+            ops.lpsComputations += pattern.length();
+        }
+    }
+
+    public static MyersMatcher compile(String pattern, int maxEdits) {
+        return new MyersMatcher(pattern, maxEdits, CaseFolding.NONE, null);
+    }
+
+    /**
+     * Counts compile steps into ops.lpsComputations when ops is non-null.
+     * @throws IllegalArgumentException if the pattern is longer than 64 chars or maxEdits is negative
+     */
+    public static MyersMatcher compile(String pattern, int maxEdits, OperationCounter ops) {
+        return new MyersMatcher(pattern, maxEdits, CaseFolding.NONE, ops);
+    }
+
+    /** Same as {@link #compile(String, int, OperationCounter)}, comparing chars under folding. */
+    public static MyersMatcher compile(String pattern, int maxEdits, CaseFolding folding, OperationCounter ops) {
+        return new MyersMatcher(pattern, maxEdits, folding, ops);
+    }
+
+    /** "myers-k" with k edits; "+ascii" or "+unicode" appended when folding. */
+    @Override
+    public String engine() { return folding.engine(EngineSelector.MYERS + "-" + maxEdits); }
+
+    @Override
+    public String pattern() { return pattern; }
+
+    public int maxEdits() { return maxEdits; }
+
+    @Override
+    public long tableBytes() { return 16 + 2L * pattern.length() + masks.tableBytes(); }
+
+    /** An occurrence with k insertions covers m + k text chars. */
+    @Override
+    public int maxSpan() { return pattern.length() + maxEdits; }
+
+    @Override
+    public boolean reportsEnds() { return true; }
+
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink) {
+        Objects.checkFromToIndex(from, to, text.length());
+        int m = pattern.length();
+        if (m == 0) {
+            return;
+        }
+        CharMasks masks = this.masks;
+        int last = m - 1;
+        long pv = ~0L; // vertical +1 deltas
+        long mv = 0;   // vertical -1 deltas
+        int score = m; // edit distance of the whole pattern to the best substring ending here
+        for (int i = from; i < to; i++) {
+            long eq = masks.get(text.charAt(i));
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            score += (int) ((ph >>> last) & 1) - (int) ((mh >>> last) & 1); // branch-free: ph, mh disjoint
+            ph <<= 1; // row 0 stays 0: an occurrence may start anywhere
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+            if (score <= maxEdits) {
+                sink.onMatch(i);
+            }
+        }
+    }
+
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink, OperationCounter ops) {
+        if (ops == null) {
+            search(text, from, to, sink);
+            return;
+        }
+        Objects.checkFromToIndex(from, to, text.length());
+        int m = pattern.length();
+        if (m == 0) {
+            return;
+        }
+        int last = m - 1;
+        long pv = ~0L;
+        long mv = 0;
+        int score = m;
+        for (int i = from; i < to; i++) {
+            ops.charComparisons++;
+            long eq = masks.get(text.charAt(i));
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            score += (int) ((ph >>> last) & 1) - (int) ((mh >>> last) & 1); // branch-free: ph, mh disjoint
+            ph <<= 1; // row 0 stays 0: an occurrence may start anywhere
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+            if (score <= maxEdits) {
+                sink.onMatch(i);
+            }
+        }
+    }
+}
@@ -6,19 +6,27 @@ package almat;
  * - lpsComputations: steps taken while building the LPS array
  * - fallbackSteps:   number of mismatch-driven fallbacks during search (j = lps[j-1] on mismatch)
  * - matchFallbacks:  number of post-match resets to allow overlaps (j = lps[j-1] after a full match)
+ *
+ * One instance per search (or per dataset): callers create it, pass it to the instrumented
+ * matcher overloads and read it afterwards. Passing {@code null} instead selects the
+ * uninstrumented loops, which contain no counter writes at all.
+ * Not thread-safe; never share an instance between concurrent searches.
  */
 public final class OperationCounter {
-    private OperationCounter() {}
+    long charComparisons;
+    long lpsComputations;
+    long fallbackSteps;
+    long matchFallbacks;
 
-    public static long charComparisons = 0;
-    public static long lpsComputations = 0;
-    public static long fallbackSteps = 0;
-    public static long matchFallbacks = 0;
+    public long charComparisons() { return charComparisons; }
+    public long lpsComputations() { return lpsComputations; }
+    public long fallbackSteps() { return fallbackSteps; }
+    public long matchFallbacks() { return matchFallbacks; }
 
-    public static void reset() {
+    public void reset() {
         charComparisons = 0;
         lpsComputations = 0;
         fallbackSteps = 0;
         matchFallbacks = 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,86 @@
+package almat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parallel KMP over a single large text.
+ * The text is cut into chunks; each chunk is scanned over [start, end + m - 1), i.e. overlapping
+ * the next chunk by m - 1 chars, so every match starting in [start, end) is found by exactly one
+ * task. Per-chunk results are concatenated in chunk order, which yields the same (overlapping)
+ * matches in the same order as the sequential search.
+ * Texts shorter than two minimum chunks stay on the sequential path.
+ */
+public final class ParallelMatcher {
+
+    /** Default minimum chunk length, in chars; below this, task overhead outweighs the scan. */
+    public static final int DEFAULT_MIN_CHUNK = 1 << 20;
+
+    private final CompiledPattern pattern;
+    private final int minChunk;
+    private final Executor executor;
+    private final int parallelism;
+
+    /** Uses the common ForkJoinPool and DEFAULT_MIN_CHUNK. */
+    public ParallelMatcher(CompiledPattern pattern) {
+        this(pattern, DEFAULT_MIN_CHUNK, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * @param minChunk    minimum chars per task (must be positive)
+     * @param executor    runs the chunk tasks
+     * @param parallelism number of workers behind executor; used to size chunks (4 per worker)
+     */
+    public ParallelMatcher(CompiledPattern pattern, int minChunk, Executor executor, int parallelism) {
+        if (minChunk <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("minChunk and parallelism must be positive");
+        }
+        this.pattern = pattern;
+        this.minChunk = minChunk;
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Reports all matches to sink in increasing order, from the calling thread.
+     * Worker failures are rethrown as CompletionException.
+     */
+    public void search(CharSequence text, IntMatchSink sink) {
+        int n = text.length();
+        int m = pattern.length();
+        int chunk = Math.max(minChunk, (int) Math.min(Integer.MAX_VALUE, ((long) n + parallelism * 4L - 1) / (parallelism * 4L)));
+        if (m == 0 || n < 2L * minChunk || chunk >= n) {
+            pattern.search(text, sink);
+            return;
+        }
+
+        List<CompletableFuture<IntList>> parts = new ArrayList<>();
+        for (int start = 0; start < n; start += chunk) {
+            int from = start;
+            int to = (int) Math.min(n, (long) start + chunk + m - 1);
+            parts.add(CompletableFuture.supplyAsync(() -> {
+                IntList found = new IntList();
+                pattern.search(text, from, to, found);
+                return found;
+            }, executor));
+            if (to == n) {
+                break;
+            }
+        }
+        for (CompletableFuture<IntList> part : parts) {
+            IntList found = part.join();
+            for (int k = 0, size = found.size(); k < size; k++) {
+                sink.onMatch(found.get(k));
+            }
+        }
+    }
+
+    public int[] search(CharSequence text) {
+        IntList result = new IntList();
+        search(text, result);
+        return result.toArray();
+    }
+}
@@ -0,0 +1,131 @@
+package almat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent requests that share a key (in SearchServer: engine + pattern) into batches.
+ *
+ * Each key with outstanding work has a lane and one virtual drainer thread. Requests arriving while a
+ * batch for their key is being prepared queue up in the lane and are taken together as the next batch,
+ * so under load a batch grows to whatever accumulated during the previous one, while an idle key adds
+ * no delay. A batch calls {@code prepare} once (e.g. fetch the compiled pattern) and hands the context
+ * to every request in it; each request then runs {@code handle} on its own (submitting) thread, so
+ * requests for one hot pattern search in parallel while sharing one compiled matcher.
+ * A failing request fails only itself; a failing prepare fails its whole batch.
+ *
+ * @param <C> per-batch context returned by prepare
+ * @param <R> request type
+ * @param <V> result type
+ */
+public final class PatternBatcher<C, R, V> {
+
+    private static final class Lane<C> {
+        List<CompletableFuture<C>> queued = new ArrayList<>();
+    }
+
+    private final Function<String, C> prepare;
+    private final BiFunction<C, R, V> handle;
+    private final int maxBatch;
+    /** A lane exists exactly while its drainer runs; both transitions happen inside compute(). */
+    private final ConcurrentHashMap<String, Lane<C>> lanes = new ConcurrentHashMap<>();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRequests = new LongAdder();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+
+    public PatternBatcher(Function<String, C> prepare, BiFunction<C, R, V> handle, int maxBatch) {
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("maxBatch must be positive: " + maxBatch);
+        }
+        this.prepare = prepare;
+        this.handle = handle;
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Queues request under key, waits for its batch to be prepared, then handles it on this thread.
+     * @throws ExecutionException wrapping whatever prepare or handle threw for this request
+     */
+    public V submit(String key, R request) throws ExecutionException, InterruptedException {
+        CompletableFuture<C> context = new CompletableFuture<>();
+        boolean[] startDrainer = new boolean[1];
+        lanes.compute(key, (k, lane) -> {
+            if (lane == null) {
+                lane = new Lane<>();
+                startDrainer[0] = true;
+            }
+            lane.queued.add(context);
+            return lane;
+        });
+        if (startDrainer[0]) {
+            Thread.startVirtualThread(() -> drain(key));
+        }
+        C prepared = context.get();
+        try {
+            return handle.apply(prepared, request);
+        } catch (RuntimeException | Error e) {
+            throw new ExecutionException(e);
+        }
+    }
+
+    private void drain(String key) {
+        List<CompletableFuture<C>> batch;
+        while ((batch = take(key)) != null) {
+            run(key, batch);
+        }
+    }
+
+    /** Next batch for key, or null after removing the lane when nothing is queued. */
+    private List<CompletableFuture<C>> take(String key) {
+        List<List<CompletableFuture<C>>> taken = new ArrayList<>(1);
+        lanes.compute(key, (k, lane) -> {
+            List<CompletableFuture<C>> queued = lane.queued;
+            if (queued.isEmpty()) {
+                return null;
+            }
+            if (queued.size() <= maxBatch) {
+                taken.add(queued);
+                lane.queued = new ArrayList<>();
+            } else {
+                List<CompletableFuture<C>> head = queued.subList(0, maxBatch);
+                taken.add(new ArrayList<>(head));
+                head.clear();
+            }
+            return lane;
+        });
+        return taken.isEmpty() ? null : taken.get(0);
+    }
+
+    /** Prepares the batch's context and releases its requests to handle themselves. */
+    private void run(String key, List<CompletableFuture<C>> batch) {
+        batches.increment();
+        batchedRequests.add(batch.size());
+        largestBatch.accumulateAndGet(batch.size(), Math::max);
+        C context;
+        try {
+            context = prepare.apply(key);
+        } catch (RuntimeException | Error e) {
+            for (CompletableFuture<C> waiting : batch) {
+                waiting.completeExceptionally(e);
+            }
+            return;
+        }
+        for (CompletableFuture<C> waiting : batch) {
+            waiting.complete(context);
+        }
+    }
+
+    public long batches() { return batches.sum(); }
+
+    /** Requests run so far, over all batches. */
+    public long batchedRequests() { return batchedRequests.sum(); }
+
+    public int largestBatch() { return largestBatch.get(); }
+}
@@ -0,0 +1,197 @@
+package almat;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe, size-bounded cache of compiled patterns keyed by pattern string, for callers that search
+ * the same patterns over and over (KMPMatcher.search rebuilds the LPS table on every call).
+ *
+ * Entries are spread by hash over independently locked stripes. Each stripe is an access-ordered
+ * LinkedHashMap that evicts its least recently used entries once it holds more than its share of
+ * {@code maxEntries} or of {@code maxWeight}, so a lookup only ever contends with lookups hashing to the
+ * same stripe. Compilation runs outside the lock: concurrent misses on one pattern may both compile, and
+ * the first copy stored wins. Values heavier than {@code maxEntryWeight} are compiled and returned but
+ * never stored (counted as rejections), so one huge pattern cannot flush the whole cache.
+ *
+ * Locks are ReentrantLocks rather than monitors so virtual threads are not pinned while waiting.
+ */
+public final class PatternCache<T> {
+
+    public static final int DEFAULT_STRIPES = 16;
+
+    private record Entry<T>(T value, long weight) {}
+
+    private static final class Stripe<T> {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<String, Entry<T>> map = new LinkedHashMap<>(16, 0.75f, true);
+        final int maxEntries;
+        final long maxWeight;
+        long weight;
+
+        Stripe(int maxEntries, long maxWeight) {
+            this.maxEntries = maxEntries;
+            this.maxWeight = maxWeight;
+        }
+    }
+
+    private final Function<String, ? extends T> compiler;
+    private final ToLongFunction<? super T> weigher;
+    private final long maxEntryWeight;
+    private final Stripe<T>[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Cache of CompiledPattern (LPS table, plus the DFA where one is built), weighed by
+     * {@link CompiledPattern#tableBytes()}.
+     * @param maxEntries     maximum number of cached patterns
+     * @param maxBytes       maximum total table bytes
+     * @param maxEntryBytes  patterns whose tables are larger are never cached
+     */
+    public static PatternCache<CompiledPattern> compiledPatterns(int maxEntries, long maxBytes, long maxEntryBytes) {
+        return new PatternCache<>(KMPMatcher::compile, CompiledPattern::tableBytes, maxEntries, maxBytes,
+                maxEntryBytes, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param compiler        builds the value for a pattern on a miss
+     * @param weigher         weight of a value (e.g. its table bytes); must be non-negative
+     * @param maxEntries      maximum number of entries, split evenly over the stripes
+     * @param maxWeight       maximum total weight, split evenly over the stripes
+     * @param maxEntryWeight  values weighing more are not admitted
+     * @param stripes         number of independently locked stripes, a power of two; lowered so that
+     *                        every stripe holds at least one entry
+     */
+    public PatternCache(Function<String, ? extends T> compiler, ToLongFunction<? super T> weigher,
+                        int maxEntries, long maxWeight, long maxEntryWeight, int stripes) {
+        if (maxEntries <= 0 || maxWeight <= 0 || maxEntryWeight < 0) {
+            throw new IllegalArgumentException("maxEntries and maxWeight must be positive, maxEntryWeight non-negative");
+        }
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("stripes must be a positive power of two: " + stripes);
+        }
+        this.compiler = Objects.requireNonNull(compiler);
+        this.weigher = Objects.requireNonNull(weigher);
+        this.maxEntryWeight = maxEntryWeight;
+        int n = Math.min(stripes, Integer.highestOneBit(maxEntries));
+        @SuppressWarnings("unchecked")
+        Stripe<T>[] s = (Stripe<T>[]) new Stripe<?>[n];
+        for (int i = 0; i < n; i++) {
+            s[i] = new Stripe<>(maxEntries / n, Math.max(maxWeight / n, 1));
+        }
+        this.stripes = s;
+    }
+
+    private Stripe<T> stripeFor(String pattern) {
+        int h = pattern.hashCode();
+        h ^= h >>> 16;
+        return stripes[h & (stripes.length - 1)];
+    }
+
+    /**
+     * Returns the cached value for pattern, compiling (and, if it fits, caching) it on a miss.
+     */
+    public T get(String pattern) {
+        Stripe<T> s = stripeFor(pattern); // NPE for null pattern
+        s.lock.lock();
+        try {
+            Entry<T> e = s.map.get(pattern);
+            if (e != null) {
+                hits.increment();
+                return e.value();
+            }
+        } finally {
+            s.lock.unlock();
+        }
+        misses.increment();
+
+        T value = compiler.apply(pattern);
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxEntryWeight || weight > s.maxWeight) {
+            rejections.increment();
+            return value;
+        }
+        s.lock.lock();
+        try {
+            Entry<T> existing = s.map.putIfAbsent(pattern, new Entry<>(value, weight));
+            if (existing != null) {
+                return existing.value(); // lost a race with another miss
+            }
+            s.weight += weight;
+            // The new entry is the most recent and fits on its own, so it is never evicted here.
+            Iterator<Map.Entry<String, Entry<T>>> eldest = s.map.entrySet().iterator();
+            while (s.map.size() > s.maxEntries || s.weight > s.maxWeight) {
+                s.weight -= eldest.next().getValue().weight();
+                eldest.remove();
+                evictions.increment();
+            }
+        } finally {
+            s.lock.unlock();
+        }
+        return value;
+    }
+
+    /** Drops every entry; the counters are kept. */
+    public void clear() {
+        for (Stripe<T> s : stripes) {
+            s.lock.lock();
+            try {
+                s.map.clear();
+                s.weight = 0;
+            } finally {
+                s.lock.unlock();
+            }
+        }
+    }
+
+    public long hits() { return hits.sum(); }
+
+    public long misses() { return misses.sum(); }
+
+    public long evictions() { return evictions.sum(); }
+
+    /** Misses whose value was too heavy to be cached. */
+    public long rejections() { return rejections.sum(); }
+
+    public int size() {
+        int size = 0;
+        for (Stripe<T> s : stripes) {
+            s.lock.lock();
+            try {
+                size += s.map.size();
+            } finally {
+                s.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /** Total weight of the cached values. */
+    public long weight() {
+        long weight = 0;
+        for (Stripe<T> s : stripes) {
+            s.lock.lock();
+            try {
+                weight += s.weight;
+            } finally {
+                s.lock.unlock();
+            }
+        }
+        return weight;
+    }
+
+    @Override
+    public String toString() {
+        return "PatternCache[size=" + size() + ", weight=" + weight() + ", hits=" + hits() + ", misses=" + misses()
+                + ", evictions=" + evictions() + ", rejections=" + rejections() + "]";
+    }
+}
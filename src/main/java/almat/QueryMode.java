@@ -0,0 +1,67 @@
+package almat;
+
+import java.util.Locale;
+
+/**
+ * What a search has to report, selectable per dataset via the input JSON's {@code query} field.
+ * Every mode except POSITIONS lets the search do less: COUNT tallies matches without storing offsets,
+ * EXISTS and FIRST_K stop the scan as soon as the answer is known.
+ */
+public enum QueryMode {
+    /** Every match offset (the default). */
+    POSITIONS("positions"),
+    /** Only the number of matches. */
+    COUNT("count"),
+    /** Whether there is a match; the scan stops at the first one, whose offset is kept. */
+    EXISTS("exists"),
+    /** The first k match offsets; the scan stops at the k-th. */
+    FIRST_K("first-k");
+
+    private final String id;
+
+    QueryMode(String id) {
+        this.id = id;
+    }
+
+    /** Name used in the input JSON and recorded in KMPResult. */
+    public String id() { return id; }
+
+    /**
+     * @param name a mode id, case-insensitive; null selects POSITIONS
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static QueryMode parse(String name) {
+        if (name == null) {
+            return POSITIONS;
+        }
+        String key = name.toLowerCase(Locale.ROOT);
+        for (QueryMode mode : values()) {
+            if (mode.id.equals(key)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown query mode: " + name);
+    }
+
+    /**
+     * Number of matches after which a search in this mode may stop.
+     * @param k match limit; required (and at least 1) for FIRST_K, ignored otherwise
+     */
+    public long limit(Integer k) {
+        return switch (this) {
+            case POSITIONS, COUNT -> Long.MAX_VALUE;
+            case EXISTS -> 1;
+            case FIRST_K -> {
+                if (k == null || k < 1) {
+                    throw new IllegalArgumentException("Query mode first-k needs \"k\" >= 1, got " + k);
+                }
+                yield k;
+            }
+        };
+    }
+
+    /** Whether match offsets are kept (all modes except COUNT). */
+    boolean keepsPositions() {
+        return this != COUNT;
+    }
+}
@@ -0,0 +1,206 @@
+package almat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * End-to-end performance gate: compares a summary.csv against a stored baseline and fails (exit status 1)
+ * when a row got slower or does more work per char than the thresholds allow.
+ *
+ * Rows are matched by (dataset, engine, query, patternLength); rows only in the new summary are ignored,
+ * rows missing from it are regressions. Per matched row:
+ *  - throughput (textLength / time) may drop by at most {@code --max-throughput-drop} (default 0.10);
+ *    time is p50Millis (run Main with --repeat for stable numbers).
+ *    Rows whose baseline time is below {@code --min-millis} (default 1) are too short to time and
+ *    skip this check.
+ *  - charComparisons / textLength may grow by at most {@code --max-comparisons-increase} (default 0.0:
+ *    the counters are deterministic). Skipped when either run has no counters (--no-metrics).
+ *
+ * Usage: RegressionGate <baseline.csv> [--current <summary.csv>] [thresholds] [--update] [-- <Main args>]
+ * Without --current, Main runs first with the arguments after "--" and its output/summary.csv is compared.
+ * A missing baseline, or --update, stores the current summary as the baseline instead of comparing.
+ */
+public final class RegressionGate {
+
+    /** One summary.csv row, reduced to what the gate compares. */
+    public record Row(String key, long textLength, long charComparisons, double millis) {
+
+        public double charsPerMilli() { return millis > 0 ? textLength / millis : Double.POSITIVE_INFINITY; }
+
+        public double comparisonsPerChar() { return textLength > 0 ? (double) charComparisons / textLength : 0; }
+    }
+
+    /** Regression limits, as fractions (0.10 = 10%). */
+    public record Thresholds(double maxThroughputDrop, double maxComparisonsIncrease, double minMillis) {
+        public static final Thresholds DEFAULT = new Thresholds(0.10, 0.0, 1.0);
+    }
+
+    private static final String USAGE = "Usage: RegressionGate <baseline.csv> [--current <summary.csv>]"
+            + " [--max-throughput-drop <f>] [--max-comparisons-increase <f>] [--min-millis <ms>] [--update]"
+            + " [-- <Main args>]";
+
+    private RegressionGate() {}
+
+    /**
+     * Reads a summary.csv as written by Main.
+     * @throws IOException if the header is not the one Main writes now, or a row does not fit it
+     */
+    public static List<Row> read(Path csv) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(csv)) {
+            String header = in.readLine();
+            if (header == null) {
+                throw new IOException("Empty summary " + csv);
+            }
+            if (!header.equals(Main.SUMMARY_HEADER)) {
+                throw new IOException("Unexpected header in " + csv + " (regenerate it with the current Main): "
+                        + header);
+            }
+            List<String> columns = Arrays.asList(header.split(","));
+            int dataset = columns.indexOf("dataset");
+            int engine = columns.indexOf("engine");
+            int query = columns.indexOf("query");
+            int textLength = columns.indexOf("textLength");
+            int patternLength = columns.indexOf("patternLength");
+            int comparisons = columns.indexOf("charComparisons");
+            int time = columns.indexOf("p50Millis");
+
+            List<Row> rows = new ArrayList<>();
+            Map<String, Integer> seen = new HashMap<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] f = line.split(",", -1);
+                if (f.length != columns.size()) {
+                    throw new IOException("Malformed row in " + csv + ": " + line);
+                }
+                String key = f[dataset] + "," + f[engine] + "," + f[query] + "," + f[patternLength];
+                int n = seen.merge(key, 1, Integer::sum);
+                if (n > 1) {
+                    key += "#" + n; // several patterns of one length in a multi-pattern dataset
+                }
+                rows.add(new Row(key, Long.parseLong(f[textLength]), Long.parseLong(f[comparisons]),
+                        Double.parseDouble(f[time])));
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Compares current against baseline.
+     * @return one human-readable line per regression; empty if the gate passes
+     */
+    public static List<String> compare(List<Row> baseline, List<Row> current, Thresholds limits) {
+        Map<String, Row> now = new HashMap<>();
+        for (Row r : current) {
+            now.put(r.key(), r);
+        }
+        List<String> regressions = new ArrayList<>();
+        for (Row base : baseline) {
+            Row cur = now.get(base.key());
+            if (cur == null) {
+                regressions.add(base.key() + ": missing from the current summary");
+                continue;
+            }
+            if (base.millis() >= limits.minMillis()
+                    && cur.charsPerMilli() < base.charsPerMilli() * (1 - limits.maxThroughputDrop())) {
+                regressions.add(String.format(Locale.US, "%s: throughput %.0f -> %.0f chars/ms (%+.1f%%)",
+                        base.key(), base.charsPerMilli(), cur.charsPerMilli(),
+                        change(base.charsPerMilli(), cur.charsPerMilli())));
+            }
+            if (base.charComparisons() > 0 && cur.charComparisons() > 0
+                    && cur.comparisonsPerChar() > base.comparisonsPerChar() * (1 + limits.maxComparisonsIncrease())) {
+                regressions.add(String.format(Locale.US, "%s: comparisons per char %.4f -> %.4f (%+.1f%%)",
+                        base.key(), base.comparisonsPerChar(), cur.comparisonsPerChar(),
+                        change(base.comparisonsPerChar(), cur.comparisonsPerChar())));
+            }
+        }
+        return regressions;
+    }
+
+    private static double change(double before, double after) {
+        return (after / before - 1) * 100;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args[0].startsWith("--")) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        Path baselineFile = Path.of(args[0]);
+        Path currentFile = null;
+        double maxThroughputDrop = Thresholds.DEFAULT.maxThroughputDrop();
+        double maxComparisonsIncrease = Thresholds.DEFAULT.maxComparisonsIncrease();
+        double minMillis = Thresholds.DEFAULT.minMillis();
+        boolean update = false;
+        String[] mainArgs = new String[0];
+        for (int a = 1; a < args.length; a++) {
+            String arg = args[a];
+            if (arg.equals("--")) {
+                mainArgs = Arrays.copyOfRange(args, a + 1, args.length);
+                break;
+            }
+            if (arg.equals("--update")) {
+                update = true;
+                continue;
+            }
+            if (a + 1 >= args.length) {
+                System.err.println("Missing value for " + arg + ". " + USAGE);
+                System.exit(2);
+            }
+            switch (arg) {
+                case "--current" -> currentFile = Path.of(args[++a]);
+                case "--max-throughput-drop" -> maxThroughputDrop = Double.parseDouble(args[++a]);
+                case "--max-comparisons-increase" -> maxComparisonsIncrease = Double.parseDouble(args[++a]);
+                case "--min-millis" -> minMillis = Double.parseDouble(args[++a]);
+                default -> {
+                    System.err.println("Unknown option " + arg + ". " + USAGE);
+                    System.exit(2);
+                }
+            }
+        }
+
+        if (currentFile == null) {
+            currentFile = Main.SUMMARY_CSV;
+            Files.deleteIfExists(currentFile); // a failed run must not compare a stale summary
+            Main.main(mainArgs);
+            if (!Files.exists(currentFile)) {
+                System.err.println("Main produced no " + currentFile);
+                System.exit(2);
+            }
+        }
+        List<Row> current = read(currentFile);
+
+        if (update || !Files.exists(baselineFile)) {
+            Path parent = baselineFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.copy(currentFile, baselineFile, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Baseline " + baselineFile + " written (" + current.size() + " rows)");
+            return;
+        }
+
+        List<String> regressions = compare(read(baselineFile), current,
+                new Thresholds(maxThroughputDrop, maxComparisonsIncrease, minMillis));
+        if (regressions.isEmpty()) {
+            System.out.println("No regressions against " + baselineFile + " (" + current.size() + " rows)");
+            return;
+        }
+        System.err.println(regressions.size() + " regression(s) against " + baselineFile + ":");
+        for (String r : regressions) {
+            System.err.println("  " + r);
+        }
+        System.exit(1);
+    }
+}
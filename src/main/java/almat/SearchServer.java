@@ -0,0 +1,248 @@
+package almat;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local HTTP search service (com.sun.net.httpserver, one virtual thread per exchange), bound to the
+ * loopback interface only.
+ *
+ *  - POST /search  body: a dataset JSON (same shape as DatasetProcessor.InputModel)
+ *                  reply: the KMPResult JSON Main would write (an array for a {@code patterns} dataset)
+ *  - GET /latency  end-to-end /search latency histogram with p50/p90/p99/p999
+ *  - GET /stats    request, batching and PatternCache counters
+ *
+ * Single-pattern requests are coalesced per (engine, pattern) by PatternBatcher and compiled through a
+ * PatternCache; the auto engine is chosen per request before batching, so every batch shares one matcher.
+ * At most {@code maxInFlight} searches run at once; further requests get 503 immediately rather than
+ * queueing, so overload shows up as rejections instead of unbounded latency.
+ */
+public final class SearchServer {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    public static final int MAX_BATCH = 64;
+    public static final int CACHE_ENTRIES = 4096;
+    public static final long CACHE_BYTES = 64L << 20;
+    public static final long CACHE_MAX_ENTRY_BYTES = 1L << 20;
+
+    /** A compiled matcher plus the preprocessing count its compilation took. */
+    private record Compiled(Matcher matcher, long lpsComputations) {}
+
+    static {
+        MatcherEvents.load(); // keeps JFR start-up out of the first request's latency
+    }
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final boolean instrumented;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final PatternCache<Compiled> cache;
+    private final PatternBatcher<Compiled, DatasetProcessor.InputModel, KMPResult> batcher;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private SearchServer(HttpServer http, int maxInFlight, boolean instrumented) {
+        this.http = http;
+        this.instrumented = instrumented;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.cache = new PatternCache<>(SearchServer::compile, c -> c.matcher().tableBytes(),
+                CACHE_ENTRIES, CACHE_BYTES, CACHE_MAX_ENTRY_BYTES, PatternCache.DEFAULT_STRIPES);
+        this.batcher = new PatternBatcher<>(cache::get,
+                (compiled, model) -> DatasetProcessor.search(model, compiled.matcher(), compiled.lpsComputations(),
+                        this.instrumented),
+                MAX_BATCH);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        http.setExecutor(executor);
+        http.createContext("/search", this::search);
+        http.createContext("/latency", this::latency);
+        http.createContext("/stats", this::stats);
+    }
+
+    /**
+     * Starts a server on 127.0.0.1.
+     * @param port         0 for an ephemeral port (see {@link #port()})
+     * @param maxInFlight  maximum concurrent /search requests
+     * @param instrumented false to run the uninstrumented matchers (counters reported as 0)
+     */
+    public static SearchServer start(int port, int maxInFlight, boolean instrumented) throws IOException {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        SearchServer server = new SearchServer(http, maxInFlight, instrumented);
+        http.start();
+        return server;
+    }
+
+    public int port() { return http.getAddress().getPort(); }
+
+    /** Stops accepting requests and waits up to {@code delaySeconds} for running exchanges. */
+    public void stop(int delaySeconds) {
+        http.stop(delaySeconds);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Cache key: engine, folding and pattern separated by a char that cannot occur in an engine or
+     * folding name.
+     */
+    private static Compiled compile(String key) {
+        int sep = key.indexOf('\0');
+        int sep2 = key.indexOf('\0', sep + 1);
+        OperationCounter ops = new OperationCounter();
+        MatcherEvents.Compile compiling = new MatcherEvents.Compile();
+        compiling.begin();
+        Matcher matcher = EngineSelector.compile(key.substring(0, sep), key.substring(sep2 + 1),
+                CaseFolding.parse(key.substring(sep + 1, sep2)), ops);
+        MatcherEvents.commit(compiling, null, matcher.engine(), key.length() - sep2 - 1, 0);
+        return new Compiled(matcher, ops.lpsComputations());
+    }
+
+    private void search(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        if (!exchange.getRequestMethod().equals("POST")) {
+            error(exchange, 405, "Use POST");
+            return;
+        }
+        requests.increment();
+        if (!inFlight.tryAcquire()) {
+            rejected.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            error(exchange, 503, "Too many requests in flight (max " + maxInFlight + ")");
+            return;
+        }
+        try {
+            DatasetProcessor.InputModel model;
+            try (InputStream body = exchange.getRequestBody()) {
+                model = JsonIO.read(body, DatasetProcessor.InputModel.class);
+            }
+            List<KMPResult> results = run(model);
+            reply(exchange, 200, out -> JsonIO.writeResults(out, results));
+            latency.record(System.nanoTime() - start);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            failed.increment();
+            error(exchange, 400, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.increment();
+            error(exchange, 503, "Interrupted");
+        } catch (RuntimeException e) {
+            failed.increment();
+            error(exchange, 500, String.valueOf(e));
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private List<KMPResult> run(DatasetProcessor.InputModel model) throws InterruptedException {
+        if (model == null || model.text == null) {
+            throw new IllegalArgumentException("Missing \"text\"");
+        }
+        if (model.patterns != null && !model.patterns.isEmpty()) {
+            return DatasetProcessor.processAll(model, instrumented); // one automaton per request; not batched
+        }
+        if (model.pattern == null) {
+            throw new IllegalArgumentException("Missing \"pattern\" or \"patterns\"");
+        }
+        String engine = model.engine == null || model.engine.equalsIgnoreCase(EngineSelector.AUTO)
+                ? EngineSelector.choose(model.pattern, model.text)
+                : model.engine.toLowerCase(Locale.ROOT);
+        try {
+            String folding = CaseFolding.parse(model.folding).id();
+            return List.of(batcher.submit(engine + '\0' + folding + '\0' + model.pattern, model));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void latency(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("count", latency.count());
+        body.put("meanMillis", latency.meanNanos() / 1_000_000.0);
+        body.put("p50Millis", latency.percentileNanos(0.50) / 1_000_000.0);
+        body.put("p90Millis", latency.percentileNanos(0.90) / 1_000_000.0);
+        body.put("p99Millis", latency.percentileNanos(0.99) / 1_000_000.0);
+        body.put("p999Millis", latency.percentileNanos(0.999) / 1_000_000.0);
+        body.put("maxMillis", latency.maxNanos() / 1_000_000.0);
+        List<Map<String, Object>> buckets = new ArrayList<>();
+        for (LatencyHistogram.Bucket b : latency.nonEmptyBuckets()) {
+            Map<String, Object> bucket = new LinkedHashMap<>();
+            bucket.put("fromMillis", b.fromNanos() / 1_000_000.0);
+            bucket.put("toMillis", b.toNanos() / 1_000_000.0);
+            bucket.put("count", b.count());
+            buckets.add(bucket);
+        }
+        body.put("buckets", buckets);
+        reply(exchange, 200, out -> JsonIO.write(out, body));
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("requests", requests.sum());
+        body.put("rejected", rejected.sum());
+        body.put("failed", failed.sum());
+        body.put("inFlight", maxInFlight - inFlight.availablePermits());
+        body.put("maxInFlight", maxInFlight);
+        body.put("batches", batcher.batches());
+        body.put("batchedRequests", batcher.batchedRequests());
+        body.put("largestBatch", batcher.largestBatch());
+        Map<String, Object> c = new LinkedHashMap<>();
+        c.put("size", cache.size());
+        c.put("weightBytes", cache.weight());
+        c.put("hits", cache.hits());
+        c.put("misses", cache.misses());
+        c.put("evictions", cache.evictions());
+        c.put("rejections", cache.rejections());
+        body.put("cache", c);
+        reply(exchange, 200, out -> JsonIO.write(out, body));
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static void reply(HttpExchange exchange, int status, BodyWriter writer) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, 0); // chunked: results are streamed
+        try (OutputStream out = exchange.getResponseBody()) {
+            writer.write(out);
+        }
+    }
+
+    /**
+     * Replies with status and an error body; if a reply's headers already went out (its body failed
+     * midway), a second status cannot be sent, so the truncated exchange is only closed.
+     */
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            exchange.close();
+            return;
+        }
+        reply(exchange, status, out -> JsonIO.write(out, Map.of("error", String.valueOf(message))));
+    }
+}
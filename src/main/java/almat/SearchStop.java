@@ -0,0 +1,18 @@
+package almat;
+
+/**
+ * Thrown by a sink to end a search early once its query is answered (see MatchCollector).
+ * Matcher loops need no limit checks of their own: the sink throws out of them instead. There is one
+ * preallocated instance with no stack trace, so stopping is cheap; it is always caught by the code that
+ * installed the throwing sink and never reaches callers.
+ */
+final class SearchStop extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    static final SearchStop INSTANCE = new SearchStop();
+
+    private SearchStop() {
+        super(null, null, false, false);
+    }
+}
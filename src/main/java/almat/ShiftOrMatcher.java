@@ -0,0 +1,170 @@
+package almat;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Bit-parallel Shift-Or matcher for patterns of at most 64 chars, exact or with up to k mismatches.
+ * The whole automaton state is one long: bit j is 0 when the last j + 1 text chars match pattern[0..j],
+ * so each text char costs a mask lookup, a shift and an or, with no data-dependent branches.
+ *
+ * With k mismatches (Hamming distance, no insertions or deletions) it keeps k + 1 such words, word d
+ * tracking prefixes matched with at most d mismatches (Baeza-Yates–Gonnet / Wu–Manber):
+ *   R[d] = ((R[d] << 1) | ~eq[c]) & (R[d - 1] << 1)
+ * Reported offsets are match starts, as for the exact engines.
+ *
+ * Instrumentation: charComparisons counts one mask lookup per text char, lpsComputations the m mask
+ * updates of compiling; there are no fallbacks.
+ * Time: O(n * (k + 1))
+ * Space: O(m + 256)
+ */
+public final class ShiftOrMatcher implements Matcher {
+
+    private final String pattern;
+    private final CharMasks masks;
+    private final int mismatches;
+    private final CaseFolding folding;
+
+    private ShiftOrMatcher(String pattern, int mismatches, CaseFolding folding, OperationCounter ops) {
+        if (mismatches < 0) {
+            throw new IllegalArgumentException("mismatches must be >= 0: " + mismatches);
+        }
+        this.pattern = pattern;
+        this.mismatches = mismatches;
+        this.folding = folding;
+        this.masks = new CharMasks(pattern.toCharArray(), engineName(mismatches), folding); // NPE for null pattern
+        if (ops != null) {
+            ops.lpsComputations += pattern.length();
+        }
+    }
+
+    /** Exact matcher. */
+    public static ShiftOrMatcher compile(String pattern) {
+        return new ShiftOrMatcher(pattern, 0, CaseFolding.NONE, null);
+    }
+
+    /**
+     * Matcher reporting every window of the text within {@code mismatches} substitutions of pattern
+     * (0: exact). Counts compile steps into ops.lpsComputations when ops is non-null.
+     * @throws IllegalArgumentException if the pattern is longer than 64 chars or mismatches is negative
+     */
+    public static ShiftOrMatcher compile(String pattern, int mismatches, OperationCounter ops) {
+        return new ShiftOrMatcher(pattern, mismatches, CaseFolding.NONE, ops);
+    }
+
+    /** Same as {@link #compile(String, int, OperationCounter)}, comparing chars under folding. */
+    public static ShiftOrMatcher compile(String pattern, int mismatches, CaseFolding folding, OperationCounter ops) {
+        return new ShiftOrMatcher(pattern, mismatches, folding, ops);
+    }
+
+    private static String engineName(int mismatches) {
+        return mismatches == 0 ? EngineSelector.SHIFT_OR : EngineSelector.HAMMING + "-" + mismatches;
+    }
+
+    /** "shift-or", or "hamming-k" with k mismatches; "+ascii" or "+unicode" appended when folding. */
+    @Override
+    public String engine() { return folding.engine(engineName(mismatches)); }
+
+    @Override
+    public String pattern() { return pattern; }
+
+    public int mismatches() { return mismatches; }
+
+    @Override
+    public long tableBytes() { return 16 + 2L * pattern.length() + masks.tableBytes(); }
+
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink) {
+        search(text, from, to, sink, null);
+    }
+
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink, OperationCounter ops) {
+        Objects.checkFromToIndex(from, to, text.length());
+        int m = pattern.length();
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        if (mismatches == 0) {
+            if (ops == null) {
+                exact(text, from, to, sink);
+            } else {
+                exact(text, from, to, sink, ops);
+            }
+        } else if (ops == null) {
+            hamming(text, from, to, sink);
+        } else {
+            hamming(text, from, to, sink, ops);
+        }
+    }
+
+    private void exact(CharSequence text, int from, int to, IntMatchSink sink) {
+        CharMasks masks = this.masks;
+        int m = pattern.length();
+        long high = 1L << (m - 1);
+        long state = ~0L;
+        for (int i = from; i < to; i++) {
+            state = (state << 1) | ~masks.get(text.charAt(i));
+            if ((state & high) == 0) {
+                sink.onMatch(i - m + 1);
+            }
+        }
+    }
+
+    private void exact(CharSequence text, int from, int to, IntMatchSink sink, OperationCounter ops) {
+        int m = pattern.length();
+        long high = 1L << (m - 1);
+        long state = ~0L;
+        for (int i = from; i < to; i++) {
+            ops.charComparisons++;
+            state = (state << 1) | ~masks.get(text.charAt(i));
+            if ((state & high) == 0) {
+                sink.onMatch(i - m + 1);
+            }
+        }
+    }
+
+    private void hamming(CharSequence text, int from, int to, IntMatchSink sink) {
+        CharMasks masks = this.masks;
+        int m = pattern.length();
+        long high = 1L << (m - 1);
+        int k = Math.min(mismatches, m); // m mismatches already match every window
+        long[] r = new long[k + 1];
+        Arrays.fill(r, ~0L);
+        for (int i = from; i < to; i++) {
+            long miss = ~masks.get(text.charAt(i));
+            long prev = r[0];
+            r[0] = (prev << 1) | miss;
+            for (int d = 1; d <= k; d++) {
+                long cur = r[d];
+                r[d] = ((cur << 1) | miss) & (prev << 1);
+                prev = cur;
+            }
+            if ((r[k] & high) == 0) {
+                sink.onMatch(i - m + 1);
+            }
+        }
+    }
+
+    private void hamming(CharSequence text, int from, int to, IntMatchSink sink, OperationCounter ops) {
+        int m = pattern.length();
+        long high = 1L << (m - 1);
+        int k = Math.min(mismatches, m);
+        long[] r = new long[k + 1];
+        Arrays.fill(r, ~0L);
+        for (int i = from; i < to; i++) {
+            ops.charComparisons++;
+            long miss = ~masks.get(text.charAt(i));
+            long prev = r[0];
+            r[0] = (prev << 1) | miss;
+            for (int d = 1; d <= k; d++) {
+                long cur = r[d];
+                r[d] = ((cur << 1) | miss) & (prev << 1);
+                prev = cur;
+            }
+            if ((r[k] & high) == 0) {
+                sink.onMatch(i - m + 1);
+            }
+        }
+    }
+}
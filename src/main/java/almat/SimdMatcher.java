@@ -0,0 +1,158 @@
+package almat;
+
+import java.util.Objects;
+
+/**
+ * KMP with a bulk candidate skip: while the KMP state is 0, no match can start before the next
+ * position i with text[i] == p[0] and text[i + m - 1] == p[m - 1], so the scan jumps straight there
+ * and only then resumes the KMP state machine. Each text char is still stepped by KMP at most once,
+ * so the worst case stays linear; on texts where that char pair is rare most chars are skipped.
+ *
+ * With the jdk.incubator.vector module enabled ({@code --add-modules jdk.incubator.vector}) the
+ * candidate search compares 16–64 chars per instruction; otherwise it falls back to a scalar scan
+ * with identical results. {@link #engine()} reports which one is in use.
+ * Time: O(m) to compile, O(n) to search
+ * Space: O(m)
+ */
+public final class SimdMatcher implements Matcher {
+
+    private static final CandidateScanner VECTOR = loadVectorScanner();
+
+    private final String pattern;
+    private final char[] chars;
+    private final int[] lps;
+    private final CandidateScanner scanner;
+
+    private SimdMatcher(String pattern, boolean allowVector, OperationCounter ops) {
+        this.pattern = pattern;
+        this.chars = pattern.toCharArray(); // NPE for null pattern
+        this.lps = KMPMatcher.buildLps(pattern, ops);
+        this.scanner = allowVector && VECTOR != null ? VECTOR : CandidateScanner.SCALAR;
+    }
+
+    /** Uses the Vector API when available. */
+    public static SimdMatcher compile(String pattern) {
+        return new SimdMatcher(pattern, true, null);
+    }
+
+    /**
+     * @param allowVector false forces the scalar candidate scan (used for differential testing)
+     */
+    public static SimdMatcher compile(String pattern, boolean allowVector, OperationCounter ops) {
+        return new SimdMatcher(pattern, allowVector, ops);
+    }
+
+    /** True when the jdk.incubator.vector module is present in this JVM. */
+    public static boolean vectorAvailable() {
+        return VECTOR != null;
+    }
+
+    /**
+     * The vector class is only touched reflectively, so this class links and runs without the
+     * incubator module.
+     */
+    private static CandidateScanner loadVectorScanner() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (CandidateScanner) Class.forName("almat.VectorCandidateScanner")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String engine() { return scanner == CandidateScanner.SCALAR ? "kmp-skip" : "kmp-simd"; }
+
+    @Override
+    public long tableBytes() { return 16 + 2L * chars.length + 16 + 4L * lps.length; }
+
+    @Override
+    public String pattern() { return pattern; }
+
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink) {
+        Objects.checkFromToIndex(from, to, text.length());
+        int m = chars.length;
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        char[] p = chars;
+        int[] lps = this.lps;
+        CandidateScanner.Cursor cursor = scanner.open(text, p[0], m - 1, p[m - 1]);
+        int end = to - m; // last possible match start
+        int i = from;
+        int j = 0;
+        while (true) {
+            if (j == 0) {
+                if (i > end || (i = cursor.next(i, end)) < 0) {
+                    return;
+                }
+            } else if (i >= to) {
+                return;
+            }
+            if (text.charAt(i) == p[j]) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(i - m);
+                    j = lps[j - 1];
+                }
+            } else if (j != 0) {
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Instrumented like KMPMatcher.search, except that chars jumped over by the candidate scan are
+     * not counted: charComparisons shows how much of the text the KMP loop actually touched.
+     */
+    @Override
+    public void search(CharSequence text, int from, int to, IntMatchSink sink, OperationCounter ops) {
+        if (ops == null) {
+            search(text, from, to, sink);
+            return;
+        }
+        Objects.checkFromToIndex(from, to, text.length());
+        int m = chars.length;
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        CandidateScanner.Cursor cursor = scanner.open(text, chars[0], m - 1, chars[m - 1]);
+        int end = to - m;
+        int i = from;
+        int j = 0;
+        while (true) {
+            if (j == 0) {
+                if (i > end || (i = cursor.next(i, end)) < 0) {
+                    return;
+                }
+            } else if (i >= to) {
+                return;
+            }
+            ops.charComparisons++;
+            if (text.charAt(i) == chars[j]) {
+                i++;
+                j++;
+                if (j == m) {
+                    sink.onMatch(i - m);
+                    int nextJ = lps[j - 1];
+                    if (nextJ != 0) {
+                        ops.matchFallbacks++;
+                    }
+                    j = nextJ;
+                }
+            } else if (j != 0) {
+                ops.fallbackSteps++;
+                j = lps[j - 1];
+            } else {
+                i++;
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package almat;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads a dataset file without materializing its {@code text} field.
+ * The header fields (dataset, pattern, patterns, engine, query, k, folding) are parsed with Jackson's JsonParser;
+ * when the parser reaches the {@code text} string, its unconsumed buffer is taken back and the string body is
+ * decoded by {@link TextReader} straight from the file, so only a few KB of text are held at a time.
+ *
+ * The text is searched as soon as it is reached, so fields after it are only seen afterwards. They are parsed
+ * with the same rules; if there are any, the first pass is discarded (its JFR events are never committed,
+ * see {@link MatcherEvents#defer}) and the file is streamed once more with the complete header. Datasets
+ * that keep {@code text} last, like every one this project ships, are read once. Anything else (unknown
+ * fields, a non-string text, ...) makes {@link #read} return null and the caller falls back to reading the
+ * whole file with JsonIO, which reports the error.
+ */
+final class StreamingDatasetReader {
+
+    /** Consumes the decoded text; may return null to request the in-memory fallback. */
+    @FunctionalInterface
+    interface TextHandler<R> {
+        R onText(DatasetProcessor.InputModel header, Reader text) throws IOException;
+    }
+
+    /** Size of the raw char window the text decoder reads from the file. */
+    static final int BUFFER_CHARS = 1 << 14;
+
+    private static final JsonFactory FACTORY = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+    private StreamingDatasetReader() {}
+
+    /**
+     * Parses the header of {@code file} and hands the {@code text} value to handler as a Reader.
+     * @return the handler's result, or null if the file cannot be streamed (see class comment)
+     */
+    static <R> R read(Path file, TextHandler<R> handler) throws IOException {
+        List<Consumer<DatasetProcessor.InputModel>> trailing = new ArrayList<>();
+        R result = read(file, handler, List.of(), trailing);
+        if (result == null && !trailing.isEmpty()) {
+            result = read(file, handler, trailing, null);
+        }
+        return result;
+    }
+
+    /**
+     * One streamed pass. {@code overrides} (the fields found after the text by an earlier pass) are applied
+     * to the header before the handler runs. Fields after the text are added to {@code trailing}; when
+     * there are any, the pass returns null. With a null {@code trailing}, they are only validated.
+     */
+    private static <R> R read(Path file, TextHandler<R> handler, List<Consumer<DatasetProcessor.InputModel>> overrides,
+                              List<Consumer<DatasetProcessor.InputModel>> trailing) throws IOException {
+        try (Reader in = Files.newBufferedReader(file);
+             JsonParser p = FACTORY.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            DatasetProcessor.InputModel header = new DatasetProcessor.InputModel();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                JsonToken value = p.nextToken();
+                if (!name.equals("text")) {
+                    Consumer<DatasetProcessor.InputModel> field = field(p, name, value);
+                    if (field == null) {
+                        return null;
+                    }
+                    field.accept(header);
+                    continue;
+                }
+                // The parser is lazy: right after a VALUE_STRING token it has consumed only the
+                // opening quote. Check that, then take back everything it buffered beyond it.
+                if (value != JsonToken.VALUE_STRING
+                        || p.currentLocation().getCharOffset() != p.currentTokenLocation().getCharOffset() + 1) {
+                    return null;
+                }
+                StringWriter buffered = new StringWriter();
+                p.releaseBuffered(buffered);
+                TextReader text = new TextReader(buffered.toString().toCharArray(), in);
+                for (Consumer<DatasetProcessor.InputModel> override : overrides) {
+                    override.accept(header);
+                }
+                R result;
+                boolean keep = false;
+                MatcherEvents.defer();
+                try {
+                    result = handler.onText(header, text);
+                    List<Consumer<DatasetProcessor.InputModel>> after = text.finish();
+                    if (after == null) {
+                        return null;
+                    }
+                    if (trailing != null && !after.isEmpty()) {
+                        trailing.addAll(after);
+                        return null;
+                    }
+                    keep = result != null;
+                } finally {
+                    MatcherEvents.release(keep);
+                }
+                return result;
+            }
+            return null; // no text field
+        }
+    }
+
+    /**
+     * Parses the value of the top-level field {@code name} (other than "text"), which starts at token value.
+     * @return what the field sets in the header, or null if the field is unknown or its value unusable
+     */
+    private static Consumer<DatasetProcessor.InputModel> field(JsonParser p, String name, JsonToken value)
+            throws IOException {
+        switch (name) {
+            case "dataset", "pattern", "engine", "query", "folding" -> {
+                if (!value.isScalarValue()) return null;
+                String s = p.getValueAsString();
+                return switch (name) {
+                    case "dataset" -> header -> header.dataset = s;
+                    case "pattern" -> header -> header.pattern = s;
+                    case "engine" -> header -> header.engine = s;
+                    case "query" -> header -> header.query = s;
+                    default -> header -> header.folding = s;
+                };
+            }
+            case "k" -> {
+                if (value == JsonToken.VALUE_NULL) {
+                    return header -> header.k = null;
+                }
+                if (value == JsonToken.VALUE_NUMBER_INT && p.getNumberType() == JsonParser.NumberType.INT) {
+                    int k = p.getIntValue();
+                    return header -> header.k = k;
+                }
+                return null;
+            }
+            case "patterns" -> {
+                if (value == JsonToken.VALUE_NULL) {
+                    return header -> header.patterns = null;
+                }
+                if (value != JsonToken.START_ARRAY) {
+                    return null;
+                }
+                List<String> patterns = new ArrayList<>();
+                JsonToken t;
+                while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+                    if (!t.isScalarValue()) return null;
+                    patterns.add(p.getValueAsString());
+                }
+                return header -> header.patterns = patterns;
+            }
+            default -> {
+                return null; // unknown field: let ObjectMapper report it
+            }
+        }
+    }
+
+    /**
+     * Decodes the body of a JSON string (after its opening quote) and ends at the closing quote.
+     */
+    static final class TextReader extends Reader {
+        private final Reader in;
+        private char[] buf;
+        private int pos;
+        private int lim;
+        private boolean done;
+
+        TextReader(char[] buffered, Reader in) {
+            this.in = in;
+            this.buf = buffered.length >= BUFFER_CHARS ? buffered : Arrays.copyOf(buffered, BUFFER_CHARS);
+            this.lim = buffered.length;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            int n = 0;
+            while (n < len) {
+                if (pos == lim && !fill()) {
+                    throw new EOFException("Unterminated \"text\" string");
+                }
+                char c = buf[pos];
+                if (c == '"') {
+                    pos++;
+                    done = true;
+                    break;
+                }
+                if (c == '\\') {
+                    pos++;
+                    cbuf[off + n++] = escape();
+                    continue;
+                }
+                int start = pos;
+                int end = Math.min(lim, pos + (len - n));
+                while (pos < end && (c = buf[pos]) != '"' && c != '\\' && c >= 0x20) {
+                    pos++;
+                }
+                if (pos == start) {
+                    throw new IOException("Unescaped control character in \"text\" string");
+                }
+                System.arraycopy(buf, start, cbuf, off + n, pos - start);
+                n += pos - start;
+            }
+            return n == 0 && done ? -1 : n;
+        }
+
+        private char escape() throws IOException {
+            char c = nextRaw();
+            return switch (c) {
+                case '"', '\\', '/' -> c;
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                case 'n' -> '\n';
+                case 'r' -> '\r';
+                case 't' -> '\t';
+                case 'u' -> {
+                    int code = 0;
+                    for (int k = 0; k < 4; k++) {
+                        int digit = Character.digit(nextRaw(), 16);
+                        if (digit < 0) {
+                            throw new IOException("Invalid \\u escape in \"text\" string");
+                        }
+                        code = (code << 4) | digit;
+                    }
+                    yield (char) code;
+                }
+                default -> throw new IOException("Invalid escape '\\" + c + "' in \"text\" string");
+            };
+        }
+
+        private char nextRaw() throws IOException {
+            if (pos == lim && !fill()) {
+                throw new EOFException("Unterminated \"text\" string");
+            }
+            return buf[pos++];
+        }
+
+        private boolean fill() throws IOException {
+            int r = in.read(buf, 0, buf.length);
+            if (r <= 0) {
+                return false;
+            }
+            pos = 0;
+            lim = r;
+            return true;
+        }
+
+        /**
+         * Skips whatever the handler left unread and parses the fields after the text.
+         * @return what those fields set in the header (empty if the text was the last field), or null if
+         * they cannot be streamed (unknown or repeated "text" fields, malformed JSON, ...)
+         */
+        List<Consumer<DatasetProcessor.InputModel>> finish() throws IOException {
+            char[] skip = new char[BUFFER_CHARS];
+            while (read(skip, 0, skip.length) >= 0) {
+                // drain
+            }
+            char next = nextNonSpace();
+            if (next != ',' && next != '}') {
+                return null;
+            }
+            // Parse "{" + the rest of the object, so the remaining fields read like a whole object.
+            List<Consumer<DatasetProcessor.InputModel>> fields = new ArrayList<>();
+            try (JsonParser p = FACTORY.createParser(rest(next == '}'))) {
+                p.nextToken(); // START_OBJECT
+                JsonToken t = p.nextToken();
+                if (next == ',' && t != JsonToken.FIELD_NAME) {
+                    return null;
+                }
+                while (t == JsonToken.FIELD_NAME) {
+                    String name = p.currentName();
+                    Consumer<DatasetProcessor.InputModel> field =
+                            name.equals("text") ? null : field(p, name, p.nextToken());
+                    if (field == null) {
+                        return null;
+                    }
+                    fields.add(field);
+                    t = p.nextToken();
+                }
+                return t == JsonToken.END_OBJECT && p.nextToken() == null ? fields : null;
+            } catch (JsonProcessingException e) {
+                return null;
+            }
+        }
+
+        /** The next char that is not JSON whitespace, consumed; 0 at the end of the file. */
+        private char nextNonSpace() throws IOException {
+            while (pos < lim || fill()) {
+                char c = buf[pos++];
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                    return c;
+                }
+            }
+            return 0;
+        }
+
+        /** "{", then "}" if {@code closed}, then the raw chars left in the file. */
+        private Reader rest(boolean closed) {
+            return new Reader() {
+                private final String head = closed ? "{}" : "{";
+                private int headPos;
+
+                @Override
+                public int read(char[] cbuf, int off, int len) throws IOException {
+                    if (len == 0) {
+                        return 0;
+                    }
+                    if (headPos < head.length()) {
+                        cbuf[off] = head.charAt(headPos++);
+                        return 1;
+                    }
+                    if (pos == lim && !fill()) {
+                        return -1;
+                    }
+                    int n = Math.min(len, lim - pos);
+                    System.arraycopy(buf, pos, cbuf, off, n);
+                    pos += n;
+                    return n;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            // the underlying file reader is owned by StreamingDatasetReader.read
+        }
+    }
+}
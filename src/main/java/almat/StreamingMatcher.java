@@ -0,0 +1,98 @@
+package almat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Objects;
+
+/**
+ * Resumable KMP search over text that arrives in chunks.
+ * The only state carried between chunks is the KMP index {@code j} and the global char offset,
+ * so memory stays O(m + buffer) regardless of text size, and a match straddling two chunks is
+ * reported exactly once, with its absolute offset.
+ * Not thread-safe: use one instance per stream (the CompiledPattern itself may be shared).
+ */
+public final class StreamingMatcher {
+
+    /** Default chunk size, in chars, for the Reader-based entry points. */
+    public static final int DEFAULT_BUFFER_CHARS = 64 * 1024;
+
+    private final CompiledPattern pattern;
+    private int j;
+    private long offset;
+
+    public StreamingMatcher(CompiledPattern pattern) {
+        this.pattern = pattern;
+    }
+
+    public StreamingMatcher(String pattern) {
+        this(KMPMatcher.compile(pattern));
+    }
+
+    /**
+     * Consume chunk[from, to) as the continuation of everything fed so far.
+     */
+    public void feed(char[] chunk, int from, int to, LongMatchSink sink) {
+        Objects.checkFromToIndex(from, to, chunk.length);
+        long base = offset - from;
+        j = pattern.advance(chunk, from, to, j, base, sink);
+        offset += to - from;
+    }
+
+    public void feed(char[] chunk, LongMatchSink sink) {
+        feed(chunk, 0, chunk.length, sink);
+    }
+
+    /**
+     * Drain reader to the end, reporting absolute char offsets. Does not close the reader.
+     * @return number of chars consumed by this call
+     */
+    public long search(Reader reader, LongMatchSink sink) throws IOException {
+        return search(reader, sink, DEFAULT_BUFFER_CHARS);
+    }
+
+    /**
+     * Like {@link #search(Reader, LongMatchSink)}, reading {@code bufferChars} chars at a time.
+     * @throws IllegalArgumentException if bufferChars is not positive
+     */
+    public long search(Reader reader, LongMatchSink sink, int bufferChars) throws IOException {
+        if (bufferChars <= 0) {
+            throw new IllegalArgumentException("bufferChars must be positive: " + bufferChars);
+        }
+        char[] buf = new char[bufferChars];
+        long start = offset;
+        int read;
+        while ((read = reader.read(buf, 0, buf.length)) != -1) {
+            feed(buf, 0, read, sink);
+        }
+        return offset - start;
+    }
+
+    /** Decodes in with charset; offsets are char (UTF-16 unit) offsets, as for String.indexOf. */
+    public long search(InputStream in, Charset charset, LongMatchSink sink) throws IOException {
+        return search(new InputStreamReader(in, charset), sink);
+    }
+
+    /** Decodes channel with charset; offsets are char (UTF-16 unit) offsets. */
+    public long search(ReadableByteChannel channel, Charset charset, LongMatchSink sink) throws IOException {
+        return search(Channels.newReader(channel, charset), sink);
+    }
+
+    /** Total chars consumed since construction or the last reset. */
+    public long offset() { return offset; }
+
+    /** Current KMP state; a non-zero value means a partial match is pending at the chunk edge. */
+    public int state() { return j; }
+
+    public CompiledPattern pattern() { return pattern; }
+
+    /** Forget all consumed input, as if freshly constructed. */
+    public void reset() {
+        j = 0;
+        offset = 0;
+    }
+}
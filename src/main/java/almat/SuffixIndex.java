@@ -0,0 +1,358 @@
+package almat;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Persistent full-text index of one text: its suffix array plus LCP array, stored in a file that is
+ * memory-mapped for queries, so an index built once answers any number of patterns without rescanning.
+ *
+ * A pattern's occurrences are the suffixes it prefixes, which form one contiguous range of the suffix
+ * array: {@link #count} finds the range with two binary searches in O(m log n) chars compared, whatever
+ * the number of matches; {@link #search} finds its start with one and walks the LCP array to its end,
+ * O(m log n + occ), then reports the offsets in text order.
+ *
+ * File layout ({@value #EXTENSION}), little-endian:
+ *   "KMPX" magic (4 bytes), format version (int), text length n (long),
+ *   suffix array (n ints), LCP array (n ints; lcp[i] = common prefix of suffixes sa[i - 1] and sa[i]),
+ *   text (n UTF-16 chars)
+ * The text is part of the index, so queries need only the index file.
+ *
+ * Instrumentation: building counts its sorting and LCP steps as lpsComputations (preprocessing);
+ * queries count chars compared during the binary searches as charComparisons.
+ * Open indexes are thread-safe until closed.
+ */
+public final class SuffixIndex implements AutoCloseable {
+
+    /** Engine identifier recorded in KMPResult. */
+    public static final String ENGINE = "suffix-array";
+    public static final String EXTENSION = ".kmpx";
+
+    private static final int MAGIC = 'K' | 'M' << 8 | 'P' << 16 | 'X' << 24;
+    private static final int VERSION = 1;
+    private static final long HEADER_BYTES = 16;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG =
+            ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfChar CHAR = ValueLayout.JAVA_CHAR.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final int n;
+    private final long lcpBase;
+    private final long textBase;
+
+    private SuffixIndex(Arena arena, MemorySegment segment, int n) {
+        this.arena = arena;
+        this.segment = segment;
+        this.n = n;
+        this.lcpBase = HEADER_BYTES + 4L * n;
+        this.textBase = HEADER_BYTES + 8L * n;
+    }
+
+    /** Builds the index of text and writes it to file (uninstrumented). */
+    public static void build(CharSequence text, Path file) throws IOException {
+        build(text, file, null);
+    }
+
+    /**
+     * Builds the index of text and writes it to file, replacing it atomically (temp file + rename).
+     * Counts construction steps into ops.lpsComputations when ops is non-null.
+     */
+    public static void build(CharSequence text, Path file, OperationCounter ops) throws IOException {
+        int n = text.length();
+        int[] sa = suffixArray(text, ops);
+        int[] lcp = lcp(text, sa, ops);
+        long size = HEADER_BYTES + 10L * n;
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Arena arena = Arena.ofConfined()) {
+            MemorySegment out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            out.set(INT, 0, MAGIC);
+            out.set(INT, 4, VERSION);
+            out.set(LONG, 8, n);
+            for (int i = 0; i < n; i++) {
+                out.set(INT, HEADER_BYTES + 4L * i, sa[i]);
+                out.set(INT, HEADER_BYTES + 4L * (n + i), lcp[i]);
+                out.set(CHAR, HEADER_BYTES + 8L * n + 2L * i, text.charAt(i));
+            }
+            out.force();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps an index file written by {@link #build}; close it to unmap.
+     * @throws IOException if the file is not an index of a known version, or is truncated
+     */
+    public static SuffixIndex open(Path file) throws IOException {
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a " + EXTENSION + " index: " + file);
+            }
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+            if (segment.get(INT, 0) != MAGIC) {
+                throw new IOException("Not a " + EXTENSION + " index: " + file);
+            }
+            int version = segment.get(INT, 4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported " + EXTENSION + " version " + version + ": " + file);
+            }
+            long n = segment.get(LONG, 8);
+            if (n < 0 || n > Integer.MAX_VALUE || size != HEADER_BYTES + 10 * n) {
+                throw new IOException("Corrupt " + EXTENSION + " index (length " + n + ", " + size + " bytes): " + file);
+            }
+            return new SuffixIndex(arena, segment, (int) n);
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /** Length of the indexed text in chars. */
+    public int textLength() { return n; }
+
+    /** Whether this is an index of exactly text, compared char by char against the stored copy. */
+    public boolean indexes(CharSequence text) {
+        if (text.length() != n) {
+            return false;
+        }
+        CharBuffer stored = segment.asSlice(textBase, 2L * n).asByteBuffer().order(ByteOrder.LITTLE_ENDIAN)
+                .asCharBuffer();
+        return stored.mismatch(CharBuffer.wrap(text)) < 0;
+    }
+
+    /** Number of (possibly overlapping) occurrences of pattern in the text; 0 for an empty pattern. */
+    public long count(String pattern) {
+        return count(pattern, null);
+    }
+
+    /** Same as {@link #count(String)}, counting into ops when non-null. */
+    public long count(String pattern, OperationCounter ops) {
+        if (pattern.isEmpty()) {
+            return 0;
+        }
+        int lo = bound(pattern, false, ops);
+        return bound(pattern, true, ops) - lo;
+    }
+
+    /** Offsets of all occurrences of pattern, in increasing order. */
+    public int[] occurrences(String pattern) {
+        IntList found = new IntList();
+        search(pattern, found, null);
+        return found.toArray();
+    }
+
+    /**
+     * Reports the start offset of every occurrence of pattern to sink, in increasing order.
+     * Counts into ops when non-null.
+     */
+    public void search(String pattern, IntMatchSink sink, OperationCounter ops) {
+        int m = pattern.length();
+        if (m == 0) {
+            return;
+        }
+        int lo = bound(pattern, false, ops);
+        int hi = lo;
+        if (lo < n && commonPrefix(suffix(lo), pattern, 0) == m) {
+            hi++;
+            while (hi < n && lcp(hi) >= m) {
+                hi++;
+            }
+        }
+        int[] offsets = new int[hi - lo];
+        for (int i = lo; i < hi; i++) {
+            offsets[i - lo] = suffix(i);
+        }
+        Arrays.sort(offsets);
+        for (int offset : offsets) {
+            sink.onMatch(offset);
+        }
+    }
+
+    /** Unmaps the index; it must not be used afterwards. */
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private int suffix(int i) {
+        return segment.get(INT, HEADER_BYTES + 4L * i);
+    }
+
+    private int lcp(int i) {
+        return segment.get(INT, lcpBase + 4L * i);
+    }
+
+    private char charAt(int i) {
+        return segment.get(CHAR, textBase + 2L * i);
+    }
+
+    /** Length of the common prefix of the suffix at pos and pattern, comparing from {@code from}. */
+    private int commonPrefix(int pos, String pattern, int from) {
+        int k = from;
+        int limit = Math.min(pattern.length(), n - pos);
+        while (k < limit && charAt(pos + k) == pattern.charAt(k)) {
+            k++;
+        }
+        return k;
+    }
+
+    /**
+     * First suffix-array index whose suffix is not below pattern ({@code upper = false}), or whose suffix is
+     * above every suffix that pattern prefixes ({@code upper = true}).
+     * Chars already known to match at both ends of the interval are not compared again.
+     */
+    private int bound(String pattern, boolean upper, OperationCounter ops) {
+        int m = pattern.length();
+        int lo = 0;
+        int hi = n;
+        int lcpLo = 0; // common prefix of pattern with the suffix just below lo
+        int lcpHi = 0; // ... and with the suffix at hi
+        long compared = 0;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int pos = suffix(mid);
+            int from = Math.min(lcpLo, lcpHi);
+            int k = commonPrefix(pos, pattern, from);
+            compared += k - from + 1;
+            boolean below; // suffix at mid sorts before the bound
+            if (k == m) {
+                below = upper;
+            } else if (pos + k == n) {
+                below = true; // the suffix is a proper prefix of pattern
+            } else {
+                below = charAt(pos + k) < pattern.charAt(k);
+            }
+            if (below) {
+                lo = mid + 1;
+                lcpLo = k;
+            } else {
+                hi = mid;
+                lcpHi = k;
+            }
+        }
+        if (ops != null) {
+            ops.charComparisons += compared;
+        }
+        return lo;
+    }
+
+    /**
+     * Suffix array by prefix doubling: each round sorts suffixes by their first 2k chars using the ranks of
+     * the first k as a (rank[i], rank[i + k]) radix key, until all ranks differ. O(n log n).
+     */
+    static int[] suffixArray(CharSequence text, OperationCounter ops) {
+        int n = text.length();
+        int[] sa = new int[n];
+        int[] rank = new int[n];
+        int[] tmp = new int[n];
+        int[] count = new int[Math.max(n, Character.MAX_VALUE + 1) + 1];
+        long steps = 0;
+        for (int i = 0; i < n; i++) {
+            count[text.charAt(i) + 1]++;
+        }
+        for (int c = 1; c < count.length; c++) {
+            count[c] += count[c - 1];
+        }
+        for (int i = 0; i < n; i++) {
+            sa[count[text.charAt(i)]++] = i;
+        }
+        int classes = 0;
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && text.charAt(sa[i]) != text.charAt(sa[i - 1])) {
+                classes++;
+            }
+            rank[sa[i]] = classes;
+        }
+        steps += n;
+        for (int k = 1; classes < n - 1; k <<= 1) {
+            // order by second key: suffixes without one (i + k >= n) first, then by rank[i + k]
+            int j = 0;
+            for (int i = n - k; i < n; i++) {
+                tmp[j++] = i;
+            }
+            for (int i = 0; i < n; i++) {
+                if (sa[i] >= k) {
+                    tmp[j++] = sa[i] - k;
+                }
+            }
+            // stable counting sort by first key
+            Arrays.fill(count, 0, classes + 2, 0);
+            for (int i = 0; i < n; i++) {
+                count[rank[i] + 1]++;
+            }
+            for (int c = 1; c <= classes + 1; c++) {
+                count[c] += count[c - 1];
+            }
+            for (int i = 0; i < n; i++) {
+                int s = tmp[i];
+                sa[count[rank[s]]++] = s;
+            }
+            tmp[sa[0]] = 0;
+            classes = 0;
+            for (int i = 1; i < n; i++) {
+                int a = sa[i - 1];
+                int b = sa[i];
+                if (rank[a] != rank[b] || (a + k < n ? rank[a + k] : -1) != (b + k < n ? rank[b + k] : -1)) {
+                    classes++;
+                }
+                tmp[b] = classes;
+            }
+            int[] swap = rank;
+            rank = tmp;
+            tmp = swap;
+            steps += n;
+        }
+        if (ops != null) {
+            ops.lpsComputations += steps;
+        }
+        return sa;
+    }
+
+    /** Kasai's algorithm: LCP of each suffix with its predecessor in the suffix array, in O(n). */
+    static int[] lcp(CharSequence text, int[] sa, OperationCounter ops) {
+        int n = sa.length;
+        int[] inverse = new int[n];
+        for (int i = 0; i < n; i++) {
+            inverse[sa[i]] = i;
+        }
+        int[] lcp = new int[n];
+        long steps = 0;
+        int h = 0;
+        for (int i = 0; i < n; i++) {
+            int r = inverse[i];
+            if (r == 0) {
+                h = 0;
+                continue;
+            }
+            int j = sa[r - 1];
+            while (i + h < n && j + h < n && text.charAt(i + h) == text.charAt(j + h)) {
+                h++;
+                steps++;
+            }
+            lcp[r] = h;
+            steps++;
+            if (h > 0) {
+                h--;
+            }
+        }
+        if (ops != null) {
+            ops.lpsComputations += steps;
+        }
+        return lcp;
+    }
+}
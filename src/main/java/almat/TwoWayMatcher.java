@@ -0,0 +1,225 @@
+package almat;
+
+import java.util.Objects;
+
+/**
+ * Crochemore–Perrin Two-Way matcher.
+ * The pattern is split at a critical factorization x = x[0..ell] x[ell+1..m); each window compares
+ * the right part left-to-right, then the left part right-to-left, and shifts by the period (after a
+ * match) or by the mismatch distance. Worst case linear like KMP, but with O(1) extra space
+ * and longer shifts.
+ * Time: O(m) to compile, O(n) to search
+ * Space: O(1) beyond the pattern
+ */
+public final class TwoWayMatcher implements Matcher {
+
+    private final String pattern;
+    private final char[] chars;
+    private final int ell;        // last index of the left factor (may be -1)
+    private final int period;     // shift after a match
+    private final boolean periodic; // pattern has period `period` across the factorization: use memory
+
+    private TwoWayMatcher(String pattern, OperationCounter ops) {
+        this.pattern = pattern;
+        this.chars = pattern.toCharArray(); // NPE for null pattern
+        int m = chars.length;
+        long[] steps = new long[1];
+        int[] p = new int[1];
+        int[] q = new int[1];
+        int i = maxSuffix(chars, p, false, steps);
+        int j = maxSuffix(chars, q, true, steps);
+        int l;
+        int per;
+        if (i > j) {
+            l = i;
+            per = p[0];
+        } else {
+            l = j;
+            per = q[0];
+        }
+        boolean prefixRepeats = m > 0 && l + 1 + per <= m;
+        for (int k = 0; prefixRepeats && k <= l; k++) {
+            steps[0]++;
+            if (chars[k] != chars[k + per]) {
+                prefixRepeats = false;
+            }
+        }
+        this.ell = l;
+        this.periodic = prefixRepeats;
+        this.period = prefixRepeats ? per : Math.max(l + 1, m - l - 1) + 1;
+        if (ops != null) {
+            ops.lpsComputations += steps[0];
+        }
+    }
+
+    public static TwoWayMatcher compile(String pattern) {
+        return new TwoWayMatcher(pattern, null);
+    }
+
+    /** Counts critical-factorization steps into ops.lpsComputations when ops is non-null. */
+    public static TwoWayMatcher compile(String pattern, OperationCounter ops) {
+        return new TwoWayMatcher(pattern, ops);
+    }
+
+    /**
+     * Start index - 1 of the maximal suffix of x for the char order (reversed when {@code tilde}),
+     * with its period stored in period[0].
+     */
+    private static int maxSuffix(char[] x, int[] period, boolean tilde, long[] steps) {
+        int m = x.length;
+        int ms = -1;
+        int j = 0;
+        int k = 1;
+        int p = 1;
+        while (j + k < m) {
+            steps[0]++;
+            char a = x[j + k];
+            char b = x[ms + k];
+            if (tilde ? a > b : a < b) {
+                j += k;
+                k = 1;
+                p = j - ms;
+            } else if (a == b) {
+                if (k != p) {
+                    k++;
+                } else {
+                    j += p;
+                    k = 1;
+                }
+            } else {
+                ms = j;
+                j = ms + 1;
+                k = 1;
+                p = 1;
+            }
+        }
+        period[0] = p;
+        return ms;
+    }
+
+    @Override
+    public String engine() { return "two-way"; }
+
+    @Override
+    public String pattern() { return pattern; }
+
+    @Override
+    public void search(CharSequence y, int from, int to, IntMatchSink sink) {
+        Objects.checkFromToIndex(from, to, y.length());
+        char[] x = chars;
+        int m = x.length;
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        int ell = this.ell;
+        int period = this.period;
+        int end = to - m;
+        if (periodic) {
+            int memory = -1;
+            for (int j = from; j <= end; ) {
+                int i = Math.max(ell, memory) + 1;
+                while (i < m && x[i] == y.charAt(i + j)) {
+                    i++;
+                }
+                if (i >= m) {
+                    i = ell;
+                    while (i > memory && x[i] == y.charAt(i + j)) {
+                        i--;
+                    }
+                    if (i <= memory) {
+                        sink.onMatch(j);
+                    }
+                    j += period;
+                    memory = m - period - 1;
+                } else {
+                    j += i - ell;
+                    memory = -1;
+                }
+            }
+        } else {
+            for (int j = from; j <= end; ) {
+                int i = ell + 1;
+                while (i < m && x[i] == y.charAt(i + j)) {
+                    i++;
+                }
+                if (i >= m) {
+                    i = ell;
+                    while (i >= 0 && x[i] == y.charAt(i + j)) {
+                        i--;
+                    }
+                    if (i < 0) {
+                        sink.onMatch(j);
+                    }
+                    j += period;
+                } else {
+                    j += i - ell;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void search(CharSequence y, int from, int to, IntMatchSink sink, OperationCounter ops) {
+        if (ops == null) {
+            search(y, from, to, sink);
+            return;
+        }
+        Objects.checkFromToIndex(from, to, y.length());
+        char[] x = chars;
+        int m = x.length;
+        if (m == 0 || to - from < m) {
+            return;
+        }
+        int end = to - m;
+        if (periodic) {
+            int memory = -1;
+            for (int j = from; j <= end; ) {
+                int i = Math.max(ell, memory) + 1;
+                while (i < m && x[i] == y.charAt(i + j)) {
+                    i++;
+                }
+                ops.charComparisons += i - Math.max(ell, memory) - (i < m ? 0 : 1);
+                if (i >= m) {
+                    i = ell;
+                    while (i > memory && x[i] == y.charAt(i + j)) {
+                        i--;
+                    }
+                    ops.charComparisons += ell - i + (i > memory ? 1 : 0);
+                    ops.matchFallbacks++;
+                    if (i <= memory) {
+                        sink.onMatch(j);
+                    }
+                    j += period;
+                    memory = m - period - 1;
+                } else {
+                    ops.fallbackSteps++;
+                    j += i - ell;
+                    memory = -1;
+                }
+            }
+        } else {
+            for (int j = from; j <= end; ) {
+                int i = ell + 1;
+                while (i < m && x[i] == y.charAt(i + j)) {
+                    i++;
+                }
+                ops.charComparisons += i - ell - (i < m ? 0 : 1);
+                if (i >= m) {
+                    i = ell;
+                    while (i >= 0 && x[i] == y.charAt(i + j)) {
+                        i--;
+                    }
+                    ops.charComparisons += ell - i + (i >= 0 ? 1 : 0);
+                    ops.matchFallbacks++;
+                    if (i < 0) {
+                        sink.onMatch(j);
+                    }
+                    j += period;
+                } else {
+                    ops.fallbackSteps++;
+                    j += i - ell;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package almat;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API candidate scan: compares SPECIES_PREFERRED.length() chars (16 with AVX2, 32 with AVX-512)
+ * against the pattern's first and last char per step.
+ * The text is copied block by block into a per-cursor scratch array (String.getChars is a bulk copy),
+ * and each char is copied at most once per search.
+ * Only loaded reflectively by SimdMatcher when the jdk.incubator.vector module is present.
+ */
+final class VectorCandidateScanner implements CandidateScanner {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final int BLOCK = 4096;
+
+    @Override
+    public Cursor open(CharSequence text, char first, int lastOffset, char last) {
+        return new VectorCursor(text, first, lastOffset, last);
+    }
+
+    private static final class VectorCursor implements Cursor {
+        private final CharSequence text;
+        private final char first;
+        private final char last;
+        private final int lastOffset;
+        private final char[] scratch;
+        private int windowStart = 0;
+        private int windowCount = 0; // candidate positions covered: [windowStart, windowStart + windowCount)
+
+        VectorCursor(CharSequence text, char first, int lastOffset, char last) {
+            this.text = text;
+            this.first = first;
+            this.last = last;
+            this.lastOffset = lastOffset;
+            this.scratch = new char[BLOCK + lastOffset];
+        }
+
+        @Override
+        public int next(int from, int end) {
+            while (from <= end) {
+                if (from < windowStart || from >= windowStart + windowCount) {
+                    fill(from, Math.min(BLOCK, end - from + 1));
+                }
+                int k = from - windowStart;
+                int count = Math.min(windowCount, end - windowStart + 1);
+                int vectorEnd = SPECIES.loopBound(count - k) + k;
+                for (; k < vectorEnd; k += SPECIES.length()) {
+                    ShortVector a = ShortVector.fromCharArray(SPECIES, scratch, k);
+                    ShortVector b = ShortVector.fromCharArray(SPECIES, scratch, k + lastOffset);
+                    VectorMask<Short> hits = a.eq((short) first).and(b.eq((short) last));
+                    if (hits.anyTrue()) {
+                        return windowStart + k + hits.firstTrue();
+                    }
+                }
+                for (; k < count; k++) {
+                    if (scratch[k] == first && scratch[k + lastOffset] == last) {
+                        return windowStart + k;
+                    }
+                }
+                from = windowStart + count;
+            }
+            return -1;
+        }
+
+        private void fill(int from, int count) {
+            int to = from + count + lastOffset;
+            if (text instanceof String s) {
+                s.getChars(from, to, scratch, 0);
+            } else {
+                for (int i = from; i < to; i++) {
+                    scratch[i - from] = text.charAt(i);
+                }
+            }
+            windowStart = from;
+            windowCount = count;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package almat;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic dataset files (the InputModel layout, {@code text} last so they stream) of any length,
+ * from a few KB to several GB, for scaling and regression runs:
+ *
+ *  - random:     uniform lowercase letters, 8-char pattern that rarely occurs
+ *  - zipf:       words of a 10,000-word vocabulary drawn with Zipf frequencies (s = 1), like natural
+ *                language; the pattern is the 50th most frequent word
+ *  - dna:        uniform ACGT, 12-char pattern
+ *  - worst-case: a^(n-1) b with pattern a^(m-1) b (m = 32): every alignment matches m - 1 chars before
+ *                failing, which is quadratic for naive left-to-right scanning and costs KMP its most
+ *                fallbacks (still under 2n comparisons); the only match is at the very end
+ *  - horspool-worst-case: a^n with pattern b a^(m-1) (m = 32): Horspool compares every window from the
+ *                right, fails only at the 'b' and shifts by one, about n * m comparisons; no match
+ *
+ * The text is generated and written in chunks, never held in memory. Output is deterministic for a
+ * given kind, length and seed.
+ *
+ * Usage: WorkloadGenerator <random|zipf|dna|worst-case|horspool-worst-case> <length[K|M|G]> <out.json> [--seed <n>]
+ *        [--pattern <p>] [--engine <e>] [--query <q>]
+ */
+public final class WorkloadGenerator {
+
+    public enum Kind {
+        RANDOM("random"),
+        ZIPF("zipf"),
+        DNA("dna"),
+        WORST_CASE("worst-case"),
+        HORSPOOL_WORST_CASE("horspool-worst-case");
+
+        private final String id;
+
+        Kind(String id) { this.id = id; }
+
+        public String id() { return id; }
+
+        /** @throws IllegalArgumentException for an unknown name */
+        public static Kind parse(String name) {
+            for (Kind k : values()) {
+                if (k.id.equalsIgnoreCase(name)) {
+                    return k;
+                }
+            }
+            throw new IllegalArgumentException("Unknown workload \"" + name
+                    + "\" (random, zipf, dna, worst-case, horspool-worst-case)");
+        }
+    }
+
+    static final int CHUNK = 1 << 16;
+    static final int VOCABULARY = 10_000;
+    static final int WORST_CASE_PATTERN = 32;
+
+    private static final String USAGE = "Usage: WorkloadGenerator <random|zipf|dna|worst-case|horspool-worst-case>"
+            + " <length[K|M|G]> <out.json>"
+            + " [--seed <n>] [--pattern <p>] [--engine <e>] [--query <q>]";
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private WorkloadGenerator() {}
+
+    /** Fills successive chunks of the text; state carries over between calls. */
+    private interface Source {
+        void fill(char[] buf, int len);
+    }
+
+    /**
+     * Writes a dataset of exactly {@code textLength} chars.
+     * @param pattern the pattern to store, or null for the kind's default
+     * @param engine  stored as the dataset's engine, or null to leave it to EngineSelector
+     * @param query   stored as the dataset's query, or null for positions
+     */
+    public static void write(Path out, Kind kind, long textLength, long seed, String pattern, String engine,
+                             String query) throws IOException {
+        if (textLength < 1) {
+            throw new IllegalArgumentException("textLength must be positive: " + textLength);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        Source source;
+        String defaultPattern;
+        switch (kind) {
+            case RANDOM -> {
+                source = uniform(random, "abcdefghijklmnopqrstuvwxyz");
+                defaultPattern = randomString(random, "abcdefghijklmnopqrstuvwxyz", 8);
+            }
+            case DNA -> {
+                source = uniform(random, "ACGT");
+                defaultPattern = randomString(random, "ACGT", 12);
+            }
+            case ZIPF -> {
+                String[] words = vocabulary(random);
+                source = zipf(random, words);
+                defaultPattern = words[49];
+            }
+            case WORST_CASE -> {
+                source = worstCase(textLength);
+                defaultPattern = "a".repeat(WORST_CASE_PATTERN - 1) + "b";
+            }
+            case HORSPOOL_WORST_CASE -> {
+                source = (buf, len) -> Arrays.fill(buf, 0, len, 'a');
+                defaultPattern = "b" + "a".repeat(WORST_CASE_PATTERN - 1);
+            }
+            default -> throw new AssertionError(kind);
+        }
+
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(out), CHUNK);
+             JsonGenerator g = FACTORY.createGenerator(os, JsonEncoding.UTF8)) {
+            g.writeStartObject();
+            g.writeStringField("dataset", kind.id() + "_" + textLength);
+            g.writeStringField("pattern", pattern != null ? pattern : defaultPattern);
+            if (engine != null) {
+                g.writeStringField("engine", engine);
+            }
+            if (query != null) {
+                g.writeStringField("query", query);
+            }
+            // Every generated char is a letter or a space, so the text is written raw, without escaping.
+            g.writeFieldName("text");
+            g.writeRawValue("\"");
+            char[] buf = new char[CHUNK];
+            for (long left = textLength; left > 0; ) {
+                int len = (int) Math.min(left, CHUNK);
+                source.fill(buf, len);
+                g.writeRaw(buf, 0, len);
+                left -= len;
+            }
+            g.writeRaw('"');
+            g.writeEndObject();
+        }
+    }
+
+    private static Source uniform(SplittableRandom random, String alphabet) {
+        char[] letters = alphabet.toCharArray();
+        return (buf, len) -> {
+            for (int i = 0; i < len; i++) {
+                buf[i] = letters[random.nextInt(letters.length)];
+            }
+        };
+    }
+
+    private static String randomString(SplittableRandom random, String alphabet, int length) {
+        char[] s = new char[length];
+        for (int i = 0; i < length; i++) {
+            s[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(s);
+    }
+
+    /** Distinct random words of 2-10 letters; shorter ones are more likely, as in real text. */
+    private static String[] vocabulary(SplittableRandom random) {
+        Set<String> seen = new LinkedHashSet<>();
+        while (seen.size() < VOCABULARY) {
+            int length = 2 + Math.min(random.nextInt(5), random.nextInt(9));
+            seen.add(randomString(random, "abcdefghijklmnopqrstuvwxyz", length));
+        }
+        String[] words = seen.toArray(new String[0]);
+        Arrays.sort(words, (a, b) -> Integer.compare(a.length(), b.length())); // frequent words are short
+        return words;
+    }
+
+    /** Space-separated words, word r drawn with probability proportional to 1 / (r + 1). */
+    private static Source zipf(SplittableRandom random, String[] words) {
+        double[] cdf = new double[words.length];
+        double sum = 0;
+        for (int r = 0; r < words.length; r++) {
+            sum += 1.0 / (r + 1);
+            cdf[r] = sum;
+        }
+        double total = sum;
+        return new Source() {
+            private String word = "";
+            private int at;
+
+            @Override
+            public void fill(char[] buf, int len) {
+                for (int i = 0; i < len; i++) {
+                    if (at == word.length()) {
+                        int r = Arrays.binarySearch(cdf, random.nextDouble() * total);
+                        word = words[Math.min(r < 0 ? -r - 1 : r, words.length - 1)] + " ";
+                        at = 0;
+                    }
+                    buf[i] = word.charAt(at++);
+                }
+            }
+        };
+    }
+
+    private static Source worstCase(long textLength) {
+        return new Source() {
+            private long written;
+
+            @Override
+            public void fill(char[] buf, int len) {
+                Arrays.fill(buf, 0, len, 'a');
+                written += len;
+                if (written == textLength) {
+                    buf[len - 1] = 'b';
+                }
+            }
+        };
+    }
+
+    /** Parses a length with an optional binary K, M or G suffix, e.g. "64M". */
+    static long parseLength(String s) {
+        String t = s.trim().toUpperCase(Locale.ROOT);
+        int shift = switch (t.isEmpty() ? ' ' : t.charAt(t.length() - 1)) {
+            case 'K' -> 10;
+            case 'M' -> 20;
+            case 'G' -> 30;
+            default -> 0;
+        };
+        long n = Long.parseLong(shift == 0 ? t : t.substring(0, t.length() - 1));
+        if (n < 1 || n > Long.MAX_VALUE >> shift) {
+            throw new IllegalArgumentException("Bad length " + s);
+        }
+        return n << shift;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            return;
+        }
+        Kind kind;
+        long length;
+        try {
+            kind = Kind.parse(args[0]);
+            length = parseLength(args[1]);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ". " + USAGE);
+            return;
+        }
+        Path out = Path.of(args[2]);
+        long seed = 42;
+        String pattern = null;
+        String engine = null;
+        String query = null;
+        for (int a = 3; a < args.length; a++) {
+            if (a + 1 >= args.length) {
+                System.err.println("Missing value for " + args[a] + ". " + USAGE);
+                return;
+            }
+            switch (args[a]) {
+                case "--seed" -> seed = Long.parseLong(args[++a]);
+                case "--pattern" -> pattern = args[++a];
+                case "--engine" -> engine = args[++a];
+                case "--query" -> query = args[++a];
+                default -> {
+                    System.err.println("Unknown option " + args[a] + ". " + USAGE);
+                    return;
+                }
+            }
+        }
+        Path parent = out.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        long start = System.nanoTime();
+        write(out, kind, length, seed, pattern, engine, query);
+        System.out.printf(Locale.US, "Wrote %s (%s, %d chars) in %.1f s%n", out, kind.id(), length,
+                (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,98 @@
+import almat.AhoCorasickMatcher;
+import almat.AhoCorasickMatcher.Match;
+import almat.KMPMatcher;
+import almat.OperationCounter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Correctness tests for AhoCorasickMatcher, cross-checked against KMPMatcher.
+ */
+public class AhoCorasickMatcherTest {
+
+    @Test
+    @DisplayName("Classic dictionary: he, she, his, hers in 'ushers'")
+    void testClassicExample() {
+        OperationCounter ops = new OperationCounter();
+        AhoCorasickMatcher ac = AhoCorasickMatcher.compile(List.of("he", "she", "his", "hers"), ops);
+        List<Match> found = ac.search("ushers");
+        assertEquals(List.of(new Match(1, 1), new Match(0, 2), new Match(3, 2)), found);
+
+        List<Match> counted = new ArrayList<>();
+        ac.search("ushers", (id, pos) -> counted.add(new Match(id, pos)), ops);
+        assertEquals(found, counted);
+        assertTrue(ops.charComparisons() >= 6);
+        assertTrue(ops.lpsComputations() > 0);
+    }
+
+    @Test
+    @DisplayName("Overlapping and nested patterns (a, aa, aaa in aaaa)")
+    void testNestedOverlaps() {
+        AhoCorasickMatcher ac = AhoCorasickMatcher.compile("a", "aa", "aaa");
+        assertEquals(4 + 3 + 2, ac.search("aaaa").size());
+    }
+
+    @Test
+    @DisplayName("Duplicate patterns are each reported")
+    void testDuplicates() {
+        AhoCorasickMatcher ac = AhoCorasickMatcher.compile("goal", "goal");
+        List<Match> found = ac.search("goal");
+        assertEquals(2, found.size());
+        assertEquals(0, found.get(0).position());
+        assertEquals(0, found.get(1).position());
+    }
+
+    @Test
+    @DisplayName("Empty pattern and empty text yield no matches")
+    void testEmpty() {
+        assertTrue(AhoCorasickMatcher.compile("", "x").search("abc").isEmpty());
+        assertTrue(AhoCorasickMatcher.compile("abc").search("").isEmpty());
+        assertTrue(AhoCorasickMatcher.compile(List.of()).search("abc").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Null pattern causes NullPointerException")
+    void testNullPattern() {
+        assertThrows(NullPointerException.class, () -> AhoCorasickMatcher.compile("a", null));
+    }
+
+    @Test
+    @DisplayName("Unicode patterns")
+    void testUnicode() {
+        AhoCorasickMatcher ac = AhoCorasickMatcher.compile("αβγ", "γ-α");
+        assertEquals(List.of(new Match(0, 0), new Match(1, 2), new Match(0, 4), new Match(1, 6)), ac.search("αβγ-αβγ-αβ"));
+    }
+
+    @Test
+    @DisplayName("Randomized: same positions as one KMP pass per pattern")
+    void testAgainstKmp() {
+        Random r = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            String text = TestData.randomString(r, 500, 3);
+            List<String> dict = new ArrayList<>();
+            for (int p = 0; p < 20; p++) {
+                dict.add(TestData.randomString(r, 1 + r.nextInt(6), 3));
+            }
+            AhoCorasickMatcher ac = AhoCorasickMatcher.compile(dict);
+
+            List<Match> expected = new ArrayList<>();
+            for (int p = 0; p < dict.size(); p++) {
+                for (int pos : KMPMatcher.search(text, dict.get(p))) {
+                    expected.add(new Match(p, pos));
+                }
+            }
+            List<Match> actual = new ArrayList<>(ac.search(text));
+            Comparator<Match> byIdThenPos = Comparator.comparingInt(Match::patternId).thenComparingInt(Match::position);
+            expected.sort(byIdThenPos);
+            actual.sort(byIdThenPos);
+            assertEquals(expected, actual);
+        }
+    }
+}
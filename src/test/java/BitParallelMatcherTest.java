@@ -0,0 +1,160 @@
+import almat.DatasetProcessor;
+import almat.EngineSelector;
+import almat.IntList;
+import almat.JsonIO;
+import almat.KMPResult;
+import almat.Matcher;
+import almat.MyersMatcher;
+import almat.OperationCounter;
+import almat.ShiftOrMatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Shift-Or (exact and k-mismatch) and Myers (k-edit) engines against brute-force definitions.
+ */
+public class BitParallelMatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private static final String ALPHABET = "abcé😀";
+
+    private static String random(Random r, int length) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            sb.append(ALPHABET.charAt(r.nextInt(ALPHABET.length())));
+        }
+        return sb.substring(0, length);
+    }
+
+    private static int[] found(Matcher matcher, String text) {
+        IntList out = new IntList();
+        matcher.search(text, out);
+        return out.toArray();
+    }
+
+    /** Starts of windows within k substitutions of pattern. */
+    private static int[] hamming(String text, String pattern, int k) {
+        IntList out = new IntList();
+        for (int i = 0; i + pattern.length() <= text.length(); i++) {
+            int diff = 0;
+            for (int j = 0; j < pattern.length(); j++) {
+                if (text.charAt(i + j) != pattern.charAt(j)) {
+                    diff++;
+                }
+            }
+            if (diff <= k) {
+                out.add(i);
+            }
+        }
+        return out.toArray();
+    }
+
+    /** Ends of substrings within edit distance k of pattern (Sellers' dynamic program). */
+    private static int[] edits(String text, String pattern, int k) {
+        int m = pattern.length();
+        int[] col = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            col[j] = j;
+        }
+        IntList out = new IntList();
+        for (int i = 0; i < text.length(); i++) {
+            int diag = col[0];
+            col[0] = 0;
+            for (int j = 1; j <= m; j++) {
+                int up = col[j];
+                int cost = text.charAt(i) == pattern.charAt(j - 1) ? 0 : 1;
+                col[j] = Math.min(Math.min(col[j] + 1, col[j - 1] + 1), diag + cost);
+                diag = up;
+            }
+            if (col[m] <= k) {
+                out.add(i);
+            }
+        }
+        return out.toArray();
+    }
+
+    @Test
+    @DisplayName("Exact Shift-Or agrees with KMP, including chars above 255 and 64-char patterns")
+    void testExact() {
+        Random r = new Random(31);
+        for (int round = 0; round < 300; round++) {
+            String text = random(r, r.nextInt(400));
+            int m = 1 + r.nextInt(round % 10 == 0 ? 64 : 6);
+            String pattern = text.length() >= m && r.nextBoolean()
+                    ? text.substring(r.nextInt(text.length() - m + 1)).substring(0, m)
+                    : random(r, m);
+            int[] expected = TestData.kmp(text, pattern);
+            assertArrayEquals(expected, found(ShiftOrMatcher.compile(pattern), text), pattern);
+        }
+        String p64 = "ab".repeat(32);
+        assertArrayEquals(new int[]{1, 3}, found(ShiftOrMatcher.compile(p64), "x" + "ab".repeat(33)));
+        assertThrows(IllegalArgumentException.class, () -> ShiftOrMatcher.compile("a".repeat(65)));
+    }
+
+    @Test
+    @DisplayName("k-mismatch Shift-Or and Myers agree with brute-force Hamming / edit distance")
+    void testApproximate() {
+        Random r = new Random(37);
+        for (int round = 0; round < 300; round++) {
+            String text = random(r, r.nextInt(300));
+            String pattern = random(r, 1 + r.nextInt(8));
+            int k = r.nextInt(4);
+            assertArrayEquals(hamming(text, pattern, k),
+                    found(ShiftOrMatcher.compile(pattern, k, null), text), pattern + " k=" + k);
+            assertArrayEquals(edits(text, pattern, k),
+                    found(MyersMatcher.compile(pattern, k), text), pattern + " k=" + k);
+        }
+        assertArrayEquals(new int[]{5}, found(MyersMatcher.compile("goal", 0), "a goal"));
+        assertArrayEquals(new int[]{4, 8, 9, 10}, found(MyersMatcher.compile("goal", 1), "a gol goals"));
+        assertArrayEquals(new int[]{0, 5}, found(ShiftOrMatcher.compile("goal", 1, null), "goal coal gaol"));
+    }
+
+    @Test
+    @DisplayName("Engine names select the bit-parallel engines; counters are one lookup per char")
+    void testEngineSelection() {
+        assertEquals("shift-or", EngineSelector.compile("shift-or", "goal", null).engine());
+        assertEquals("hamming-2", EngineSelector.compile("Hamming-2", "goal", null).engine());
+        assertEquals("hamming-1", EngineSelector.compile("hamming", "goal", null).engine());
+        assertEquals("myers-3", EngineSelector.compile("myers-3", "goal", null).engine());
+        assertThrows(IllegalArgumentException.class, () -> EngineSelector.compile("myers-x", "goal", null));
+        assertThrows(IllegalArgumentException.class, () -> EngineSelector.compile("hammingway", "goal", null));
+
+        OperationCounter ops = new OperationCounter();
+        Matcher myers = EngineSelector.compile("myers-1", "goal", ops);
+        myers.search("the goalkeeper", 0, 14, position -> { }, ops);
+        assertEquals(14, ops.charComparisons());
+        assertEquals(4, ops.lpsComputations());
+        assertEquals(0, ops.fallbackSteps());
+    }
+
+    @Test
+    @DisplayName("Streamed datasets carry m + k - 1 chars for Myers and report each end once")
+    void testStreamedMyers() throws IOException {
+        Random r = new Random(41);
+        String text = random(r, 200_000);
+        String pattern = "abcéab";
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("dataset", "fuzzy");
+        fields.put("pattern", pattern);
+        fields.put("engine", "myers-2");
+        fields.put("text", text);
+        Path file = dir.resolve("fuzzy.json");
+        JsonIO.write(file, fields);
+        KMPResult result = DatasetProcessor.processAll(file, true).get(0);
+        long[] expected = Arrays.stream(edits(text, pattern, 2)).asLongStream().toArray();
+        assertEquals("myers-2", result.getEngine());
+        assertArrayEquals(expected, result.getMatches());
+    }
+}
@@ -0,0 +1,132 @@
+import almat.CaseFolding;
+import almat.DatasetProcessor;
+import almat.EngineSelector;
+import almat.JsonIO;
+import almat.KMPMatcher;
+import almat.KMPResult;
+import almat.Matcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Case-insensitive matching: every engine agrees with an exact search of folded copies, offsets refer to
+ * the original text, and datasets select folding with the "folding" field.
+ */
+public class CaseFoldingTest {
+
+    private static final List<String> ENGINES = List.of("kmp", "kmp-dfa", "horspool", "horspool-bounded", "two-way",
+            "kmp-simd", "shift-or", "hamming-1", "myers-1");
+
+    @TempDir
+    Path dir;
+
+    private static List<Integer> found(Matcher matcher, String text) {
+        List<Integer> found = new ArrayList<>();
+        matcher.search(text, found::add);
+        return found;
+    }
+
+    private static List<Integer> expected(String engine, String text, String pattern, CaseFolding folding) {
+        return found(EngineSelector.compile(engine, folding.fold(pattern), null), folding.fold(text));
+    }
+
+    @Test
+    @DisplayName("Every engine matches like an exact search of the folded text, without folding it")
+    void testEnginesAgreeWithFoldedCopies() {
+        String alphabet = "aAbBsSſkK\u212AσςΣ";
+        Random r = new Random(22);
+        for (int round = 0; round < 300; round++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = r.nextInt(400); i > 0; i--) {
+                sb.append(alphabet.charAt(r.nextInt(alphabet.length())));
+            }
+            String text = sb.toString();
+            StringBuilder pattern = new StringBuilder();
+            for (int i = 1 + r.nextInt(6); i > 0; i--) {
+                pattern.append(alphabet.charAt(r.nextInt(alphabet.length())));
+            }
+            for (CaseFolding folding : List.of(CaseFolding.ASCII, CaseFolding.UNICODE)) {
+                for (String engine : ENGINES) {
+                    Matcher matcher = EngineSelector.compile(engine, pattern.toString(), folding, null);
+                    assertEquals(expected(engine, text, pattern.toString(), folding), found(matcher, text),
+                            engine + "+" + folding.id() + " " + pattern + " in " + text);
+                    assertEquals(pattern.toString(), matcher.pattern());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("ASCII folding equates only Latin letters; Unicode folding also Greek sigmas and the Kelvin sign")
+    void testFoldings() {
+        String text = "Goal! GOAL, goal and gOaL.";
+        assertEquals(List.of(0, 6, 12, 21), KMPMatcher.search(text, "goal", CaseFolding.ASCII));
+        assertEquals(List.of(12), KMPMatcher.search(text, "goal", CaseFolding.NONE));
+
+        String greek = "ΟΔΥΣΣΕΥΣ and οδυσσευς";
+        assertEquals(List.of(), KMPMatcher.search(greek, "Οδυσσευς", CaseFolding.ASCII));
+        assertEquals(List.of(0, 13), KMPMatcher.search(greek, "Οδυσσευς", CaseFolding.UNICODE));
+
+        String kelvin = "0 \u212Aelvin";
+        assertEquals(List.of(), KMPMatcher.search(kelvin, "kelvin", CaseFolding.ASCII));
+        assertEquals(List.of(2), KMPMatcher.search(kelvin, "KELVIN", CaseFolding.UNICODE));
+
+        Matcher m = KMPMatcher.compile("ab", true, CaseFolding.UNICODE, null);
+        assertEquals("kmp-dfa+unicode", m.engine());
+        assertEquals("kmp+ascii", KMPMatcher.compile("ab", false, CaseFolding.ASCII, null).engine());
+        assertEquals("shift-or+ascii", EngineSelector.compile("shift-or", "ab", CaseFolding.ASCII, null).engine());
+        assertEquals(CaseFolding.UNICODE, CaseFolding.parse("Unicode"));
+        assertEquals(CaseFolding.NONE, CaseFolding.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> CaseFolding.parse("turkish"));
+    }
+
+    @Test
+    @DisplayName("The folding field works for streamed, multi-pattern and in-memory datasets")
+    void testDatasets() throws IOException {
+        String text = "Error: disk full. ERROR: retry. error again; WARNING ignored. ".repeat(3000);
+
+        Path single = dir.resolve("single.json");
+        Map<String, Object> fields = new LinkedHashMap<>(); // text last, so the file is streamed
+        fields.put("dataset", "ci");
+        fields.put("pattern", "error");
+        fields.put("folding", "ascii");
+        fields.put("text", text);
+        JsonIO.write(single, fields);
+        KMPResult r = DatasetProcessor.processAll(single, true).get(0);
+        assertEquals("error", r.getPattern());
+        assertTrue(r.getEngine().endsWith("+ascii"), r.getEngine());
+        long[] expected = KMPMatcher.search(text.toLowerCase(), "error").stream()
+                .mapToLong(Integer::longValue).toArray();
+        assertEquals(9000, expected.length);
+        assertArrayEquals(expected, r.getMatches());
+
+        Path multi = dir.resolve("multi.json");
+        JsonIO.write(multi, Map.of("dataset", "ci-multi", "patterns", List.of("ERROR", "Warning"),
+                "folding", "unicode", "query", "count", "text", text));
+        List<KMPResult> rs = DatasetProcessor.processAll(multi, true);
+        assertEquals(List.of("ERROR", "Warning"), rs.stream().map(KMPResult::getPattern).toList());
+        assertEquals("aho-corasick+unicode", rs.get(0).getEngine());
+        assertEquals(9000, rs.get(0).getMatchCount());
+        assertEquals(3000, rs.get(1).getMatchCount());
+
+        DatasetProcessor.InputModel model = JsonIO.read(single, DatasetProcessor.InputModel.class);
+        model.engine = "horspool";
+        KMPResult viaView = DatasetProcessor.processAll(model, true).get(0);
+        assertEquals("horspool+ascii", viaView.getEngine());
+        assertArrayEquals(expected, viaView.getMatches());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> DatasetProcessor.processIndexed(single, dir.resolve("i.kmpx"), true));
+    }
+}
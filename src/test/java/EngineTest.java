@@ -0,0 +1,154 @@
+import almat.EngineSelector;
+import almat.HorspoolMatcher;
+import almat.IntList;
+import almat.KMPMatcher;
+import almat.Matcher;
+import almat.OperationCounter;
+import almat.SimdMatcher;
+import almat.TwoWayMatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential tests of the Matcher engines against KMPMatcher, plus engine selection.
+ */
+public class EngineTest {
+
+    private static List<Matcher> engines(String pattern) {
+        return List.of(
+                KMPMatcher.compile(pattern, false),
+                KMPMatcher.compile(pattern, true),
+                HorspoolMatcher.compile(pattern),
+                HorspoolMatcher.compileBounded(pattern, null),
+                TwoWayMatcher.compile(pattern),
+                SimdMatcher.compile(pattern),
+                SimdMatcher.compile(pattern, false, null));
+    }
+
+    @Test
+    @DisplayName("All engines agree with KMP on the KMPMatcherTest cases")
+    void testFixedCases() {
+        String[][] cases = {
+                {"needle", "needle"}, {"abcdef", "xyz"}, {"aaaa", "aa"},
+                {"startXYZmiddleXYZendXYZ", "XYZ"}, {"short", "muchlongerpattern"},
+                {"anything", ""}, {"", "abc"}, {"αβγ-αβγ-αβ", "αβγ"},
+                {"abababacababaca", "ababaca"}, {"aaaaaaaaaaaaaaaaaa", "aaaaa"},
+                {"ĀāĀāĀ", "ĀāĀ"}
+        };
+        for (String[] c : cases) {
+            for (Matcher engine : engines(c[1])) {
+                IntList found = new IntList();
+                engine.search(c[0], found);
+                assertArrayEquals(TestData.kmp(c[0], c[1]), found.toArray(), engine.engine() + " on " + c[1]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Randomized differential test over small alphabets, with and without counters")
+    void testRandomized() {
+        Random r = new Random(5);
+        for (int round = 0; round < 2_000; round++) {
+            int sigma = 1 + r.nextInt(4);
+            String text = TestData.randomString(r, r.nextInt(200), sigma);
+            String pattern = TestData.randomString(r, 1 + r.nextInt(10), sigma);
+            int[] expected = TestData.kmp(text, pattern);
+            for (Matcher engine : engines(pattern)) {
+                IntList plain = new IntList();
+                engine.search(text, plain);
+                assertArrayEquals(expected, plain.toArray(), engine.engine() + " " + pattern + " in " + text);
+
+                IntList counted = new IntList();
+                OperationCounter ops = new OperationCounter();
+                engine.search(text, 0, text.length(), counted, ops);
+                assertArrayEquals(expected, counted.toArray(), engine.engine() + " (instrumented)");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("SIMD candidate scan agrees with the scalar path on long texts and high chars")
+    void testSimdAgainstScalar() {
+        assertTrue(SimdMatcher.vectorAvailable(), "tests run with --add-modules jdk.incubator.vector");
+        assertEquals("kmp-simd", SimdMatcher.compile("ab").engine());
+        assertEquals("kmp-skip", SimdMatcher.compile("ab", false, null).engine());
+
+        Random r = new Random(17);
+        char[] alphabet = {'a', 'b', 'c', 'x', '\u00e9', '\uffee'};
+        for (int round = 0; round < 300; round++) {
+            StringBuilder sb = new StringBuilder();
+            int n = r.nextInt(12_000);
+            int sigma = 1 + r.nextInt(alphabet.length);
+            for (int i = 0; i < n; i++) {
+                // Mostly 'x' so candidates are sparse and the vector path does the skipping
+                sb.append(r.nextInt(8) == 0 ? alphabet[r.nextInt(sigma)] : 'x');
+            }
+            String text = sb.toString();
+            StringBuilder pb = new StringBuilder();
+            for (int i = 0, m = 1 + r.nextInt(40); i < m; i++) {
+                pb.append(alphabet[r.nextInt(sigma)]);
+            }
+            String pattern = pb.toString();
+
+            IntList vector = new IntList();
+            IntList scalar = new IntList();
+            SimdMatcher.compile(pattern).search(text, vector);
+            SimdMatcher.compile(pattern, false, null).search(text, scalar);
+            assertArrayEquals(scalar.toArray(), vector.toArray(), pattern);
+            assertArrayEquals(TestData.kmp(text, pattern), vector.toArray(), pattern);
+            // A CharSequence that is not a String takes the charAt copy path
+            IntList viaBuilder = new IntList();
+            SimdMatcher.compile(pattern).search(new StringBuilder(text), viaBuilder);
+            assertArrayEquals(scalar.toArray(), viaBuilder.toArray(), pattern);
+        }
+    }
+
+    @Test
+    @DisplayName("Two-Way stays linear on adversarial input")
+    void testTwoWayLinear() {
+        String text = "a".repeat(10_000);
+        String pattern = "a".repeat(99) + "b";
+        OperationCounter ops = new OperationCounter();
+        TwoWayMatcher.compile(pattern).search(text, 0, text.length(), new IntList(), ops);
+        assertTrue(ops.charComparisons() <= 2L * text.length(), "comparisons=" + ops.charComparisons());
+    }
+
+    @Test
+    @DisplayName("Bounded Horspool hands Horspool's worst case to Two-Way and stays linear")
+    void testBoundedHorspoolLinear() {
+        String text = "a".repeat(10_000) + "baaa" + "a".repeat(96);
+        String pattern = "b" + "a".repeat(99);
+        OperationCounter plain = new OperationCounter();
+        OperationCounter bounded = new OperationCounter();
+        IntList expected = new IntList();
+        IntList found = new IntList();
+        HorspoolMatcher.compile(pattern).search(text, 0, text.length(), expected, plain);
+        HorspoolMatcher.compileBounded(pattern, null).search(text, 0, text.length(), found, bounded);
+        assertArrayEquals(new int[]{10_000}, expected.toArray());
+        assertArrayEquals(expected.toArray(), found.toArray());
+        assertTrue(plain.charComparisons() > 50L * text.length(), "plain=" + plain.charComparisons());
+        assertTrue(bounded.charComparisons() <= 5L * text.length(), "bounded=" + bounded.charComparisons());
+
+        IntList uninstrumented = new IntList();
+        HorspoolMatcher.compileBounded(pattern, null).search(text, 0, text.length(), uninstrumented);
+        assertArrayEquals(expected.toArray(), uninstrumented.toArray());
+    }
+
+    @Test
+    @DisplayName("Selector: KMP for small inputs, Horspool for prose, Two-Way for DNA")
+    void testSelection() {
+        String prose = "the striker scored a late goal and the crowd erupted in joy ".repeat(100);
+        String dna = "ACGTTGCAAGCT".repeat(500);
+        assertEquals("kmp", EngineSelector.choose("goal", "a short text with a goal"));
+        assertEquals("horspool-bounded", EngineSelector.choose("crowd erupted", prose));
+        assertEquals("two-way", EngineSelector.choose("GCAAGC", dna));
+        assertEquals("kmp-dfa", EngineSelector.choose("GC", dna.repeat(4)));
+        assertEquals("horspool-bounded", EngineSelector.select("crowd erupted", prose, null).engine());
+        assertThrows(IllegalArgumentException.class, () -> EngineSelector.compile("nope", "x", null));
+    }
+}
@@ -0,0 +1,163 @@
+import almat.BytePattern;
+import almat.FileFollower;
+import almat.JsonIO;
+import almat.MappedFileMatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Follow mode: appended bytes only, state carried across appends, checkpoint/resume.
+ */
+public class FileFollowerTest {
+
+    @TempDir
+    Path dir;
+
+    private static void append(Path file, String s) throws IOException {
+        Files.writeString(file, s, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    @DisplayName("A match split across two appends is found once, at its byte offset")
+    void testSplitAcrossAppends() throws IOException {
+        Path log = dir.resolve("app.log");
+        BytePattern pattern = BytePattern.compile("gólazo", StandardCharsets.UTF_8);
+        FileFollower follower = new FileFollower(log, pattern, null);
+        List<Long> found = new ArrayList<>();
+
+        assertEquals(0, follower.poll(found::add)); // not created yet
+        append(log, "xx gó");
+        follower.poll(found::add);
+        assertTrue(found.isEmpty());
+        assertEquals(3, follower.state());
+        append(log, "lazo gól");
+        assertEquals(9, follower.poll(found::add));
+        append(log, "azo");
+        follower.poll(found::add);
+        assertEquals(List.of(3L, 11L), found); // 'ó' is two bytes
+        assertEquals(0, follower.poll(found::add));
+        assertEquals(Files.size(log), follower.offset());
+    }
+
+    @Test
+    @DisplayName("A restarted follower resumes from the checkpoint without rescanning")
+    void testCheckpointResume() throws IOException {
+        Path log = dir.resolve("app.log");
+        Path checkpoint = dir.resolve("app.checkpoint.json");
+        BytePattern pattern = BytePattern.compile("ERROR", StandardCharsets.UTF_8);
+        List<Long> found = new ArrayList<>();
+
+        FileFollower first = new FileFollower(log, pattern, checkpoint);
+        append(log, "ok\nERROR 1\nERR");
+        first.poll(found::add);
+        first.checkpoint();
+
+        append(log, "OR 2\n");
+        FileFollower second = new FileFollower(log, pattern, checkpoint);
+        assertEquals(first.offset(), second.offset());
+        assertEquals(3, second.state());
+        second.poll(found::add);
+        assertEquals(List.of(3L, 11L), found);
+        assertEquals(2, second.matches());
+
+        BytePattern other = BytePattern.compile("WARN", StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> new FileFollower(log, other, checkpoint));
+    }
+
+    @Test
+    @DisplayName("A checkpoint is written only once the file was found, and must record its identity")
+    void testCheckpointNeedsIdentity() throws IOException {
+        Path log = dir.resolve("app.log");
+        Path checkpoint = dir.resolve("app.checkpoint.json");
+        BytePattern pattern = BytePattern.compile("ERROR", StandardCharsets.UTF_8);
+
+        FileFollower follower = new FileFollower(log, pattern, checkpoint);
+        follower.poll(pos -> {}); // not created yet
+        follower.checkpoint();
+        assertFalse(Files.exists(checkpoint));
+
+        append(log, "ERROR 1\n");
+        follower.poll(pos -> {});
+        follower.checkpoint();
+        FileFollower.Checkpoint c = JsonIO.read(checkpoint, FileFollower.Checkpoint.class);
+        assertNotNull(c.fileKey);
+
+        c.fileKey = null;
+        JsonIO.write(checkpoint, c);
+        assertThrows(IllegalArgumentException.class, () -> new FileFollower(log, pattern, checkpoint));
+    }
+
+    @Test
+    @DisplayName("A file replaced while the follower was down is searched from the start; other files are rejected")
+    void testRestartOverReplacedFile() throws IOException {
+        Path log = dir.resolve("app.log");
+        Path checkpoint = dir.resolve("app.checkpoint.json");
+        BytePattern pattern = BytePattern.compile("ERROR", StandardCharsets.UTF_8);
+
+        FileFollower first = new FileFollower(log, pattern, checkpoint);
+        append(log, "ok\nERROR 1\nERR");
+        first.poll(pos -> {});
+        first.checkpoint();
+
+        // Rotated while down: a new, longer file under the same name, so only its identity tells them apart.
+        Path rotated = dir.resolve("app.log.new");
+        append(rotated, "ERROR A\nok ok ok ok ok\nERROR B\n");
+        Files.move(rotated, log, StandardCopyOption.REPLACE_EXISTING);
+        FileFollower second = new FileFollower(log, pattern, checkpoint);
+        assertEquals(0, second.offset());
+        assertEquals(0, second.state());
+        List<Long> found = new ArrayList<>();
+        second.poll(found::add);
+        assertEquals(List.of(0L, 23L), found);
+        second.checkpoint();
+
+        append(log, "ERROR C\n");
+        FileFollower third = new FileFollower(log, pattern, checkpoint);
+        assertEquals(second.offset(), third.offset()); // same file: resumes
+        found.clear();
+        third.poll(found::add);
+        assertEquals(List.of(31L), found);
+
+        Path other = dir.resolve("other.log");
+        assertThrows(IllegalArgumentException.class, () -> new FileFollower(other, pattern, checkpoint));
+    }
+
+    @Test
+    @DisplayName("Random appends give the same matches as searching the final file; truncation restarts")
+    void testRandomAppendsAndTruncation() throws IOException {
+        Path log = dir.resolve("random.log");
+        BytePattern pattern = BytePattern.compile("abab", StandardCharsets.UTF_8);
+        FileFollower follower = new FileFollower(log, pattern, null);
+        List<Long> found = new ArrayList<>();
+        Random r = new Random(8);
+        for (int k = 0; k < 300; k++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = r.nextInt(12); i > 0; i--) {
+                sb.append(r.nextBoolean() ? 'a' : 'b');
+            }
+            append(log, sb.toString());
+            follower.poll(found::add);
+        }
+        List<Long> expected = new ArrayList<>();
+        MappedFileMatcher.search(log, pattern, expected::add);
+        assertEquals(expected, found);
+
+        Files.writeString(log, "abab");
+        found.clear();
+        follower.poll(found::add);
+        assertEquals(List.of(0L), found);
+    }
+}
@@ -1,3 +1,5 @@
+import almat.CompiledPattern;
+import almat.IntList;
 import almat.KMPMatcher;
 import almat.OperationCounter;
 import org.junit.jupiter.api.DisplayName;
@@ -15,53 +17,53 @@ public class KMPMatcherTest {
     @Test
     @DisplayName("Exact match: text == pattern")
     void testExact() {
-        OperationCounter.reset();
-        List<Integer> pos = KMPMatcher.search("needle", "needle");
+        OperationCounter ops = new OperationCounter();
+        List<Integer> pos = KMPMatcher.search("needle", "needle", ops);
         assertEquals(List.of(0), pos, "Exact match should start at 0");
-        assertTrue(OperationCounter.charComparisons >= 1);
-        assertTrue(OperationCounter.lpsComputations > 0);
+        assertTrue(ops.charComparisons() >= 1);
+        assertTrue(ops.lpsComputations() > 0);
         // Post-match reset may be zero when lps[last] == 0; that's fine.
     }
 
     @Test
     @DisplayName("No match scenario")
     void testNoMatch() {
-        OperationCounter.reset();
-        List<Integer> pos = KMPMatcher.search("abcdef", "xyz");
+        OperationCounter ops = new OperationCounter();
+        List<Integer> pos = KMPMatcher.search("abcdef", "xyz", ops);
         assertTrue(pos.isEmpty(), "No occurrences expected");
-        assertTrue(OperationCounter.charComparisons > 0);
-        assertTrue(OperationCounter.lpsComputations > 0);
+        assertTrue(ops.charComparisons() > 0);
+        assertTrue(ops.lpsComputations() > 0);
     }
 
     @Test
     @DisplayName("Multiple matches (non-overlapping)")
     void testMultipleMatches() {
-        OperationCounter.reset();
+        OperationCounter ops = new OperationCounter();
         String text = "abc needle def needle xyz";
         String pattern = "needle";
-        List<Integer> pos = KMPMatcher.search(text, pattern);
+        List<Integer> pos = KMPMatcher.search(text, pattern, ops);
         assertEquals(List.of(4, 15), pos);
-        assertTrue(OperationCounter.charComparisons > 0);
+        assertTrue(ops.charComparisons() > 0);
     }
 
     @Test
     @DisplayName("Overlapping matches (aaaa vs aa -> [0,1,2]) and post-match resets")
     void testOverlapping() {
-        OperationCounter.reset();
-        List<Integer> pos = KMPMatcher.search("aaaa", "aa");
+        OperationCounter ops = new OperationCounter();
+        List<Integer> pos = KMPMatcher.search("aaaa", "aa", ops);
         assertEquals(List.of(0, 1, 2), pos);
         // Overlaps are enabled by post-match reset j = lps[j-1], not by mismatches.
-        assertTrue(OperationCounter.matchFallbacks >= 2, "Expected post-match resets for overlaps");
+        assertTrue(ops.matchFallbacks() >= 2, "Expected post-match resets for overlaps");
         // fallbackSteps may legitimately be zero here.
     }
 
     @Test
     @DisplayName("Pattern at start, middle, and end")
     void testPatternStartMiddleEnd() {
-        OperationCounter.reset();
+        OperationCounter ops = new OperationCounter();
         String text = "startXYZmiddleXYZendXYZ";
         String pattern = "XYZ";
-        List<Integer> pos = KMPMatcher.search(text, pattern);
+        List<Integer> pos = KMPMatcher.search(text, pattern, ops);
         assertEquals(List.of(
                 text.indexOf("XYZ"),
                 text.indexOf("XYZ", text.indexOf("XYZ") + 1),
@@ -72,63 +74,137 @@ public class KMPMatcherTest {
     @Test
     @DisplayName("Pattern longer than text -> no matches")
     void testPatternLongerThanText() {
-        OperationCounter.reset();
-        List<Integer> pos = KMPMatcher.search("short", "muchlongerpattern");
+        OperationCounter ops = new OperationCounter();
+        List<Integer> pos = KMPMatcher.search("short", "muchlongerpattern", ops);
         assertTrue(pos.isEmpty());
     }
 
     @Test
     @DisplayName("Empty pattern returns no matches (project policy)")
     void testEmptyPattern() {
-        OperationCounter.reset();
-        List<Integer> pos = KMPMatcher.search("anything", "");
+        OperationCounter ops = new OperationCounter();
+        List<Integer> pos = KMPMatcher.search("anything", "", ops);
         assertTrue(pos.isEmpty(), "By design, empty pattern yields no matches");
     }
 
     @Test
     @DisplayName("Empty text returns no matches")
     void testEmptyText() {
-        OperationCounter.reset();
-        List<Integer> pos = KMPMatcher.search("", "abc");
+        OperationCounter ops = new OperationCounter();
+        List<Integer> pos = KMPMatcher.search("", "abc", ops);
         assertTrue(pos.isEmpty());
     }
 
     @Test
     @DisplayName("Unicode content (non-ASCII) exact match and occurrences")
     void testUnicode() {
-        OperationCounter.reset();
+        OperationCounter ops = new OperationCounter();
         String text = "αβγ-αβγ-αβ";
         String pattern = "αβγ";
-        List<Integer> pos = KMPMatcher.search(text, pattern);
+        List<Integer> pos = KMPMatcher.search(text, pattern, ops);
         assertEquals(List.of(0, 4), pos);
     }
 
     @Test
     @DisplayName("Known LPS array example: 'ababaca'")
     void testLpsArray() {
-        OperationCounter.reset();
-        int[] lps = KMPMatcher.buildLps("ababaca");
+        OperationCounter ops = new OperationCounter();
+        int[] lps = KMPMatcher.buildLps("ababaca", ops);
         assertArrayEquals(new int[]{0, 0, 1, 2, 3, 0, 1}, lps);
-        assertTrue(OperationCounter.lpsComputations > 0);
+        assertTrue(ops.lpsComputations() > 0);
     }
 
     @Test
     @DisplayName("Null inputs cause NullPointerException")
     void testNullInputs() {
-        OperationCounter.reset();
-        assertThrows(NullPointerException.class, () -> KMPMatcher.search(null, "abc"));
-        assertThrows(NullPointerException.class, () -> KMPMatcher.search("abc", null));
+        OperationCounter ops = new OperationCounter();
+        assertThrows(NullPointerException.class, () -> KMPMatcher.search(null, "abc", ops));
+        assertThrows(NullPointerException.class, () -> KMPMatcher.search("abc", null, ops));
     }
 
     @Test
     @DisplayName("Highly repetitive pattern to exercise fallbacks and post-match resets")
     void testRepetitivePatternFallbacks() {
-        OperationCounter.reset();
+        OperationCounter ops = new OperationCounter();
         String text = "aaaaaaaaaaaaaaaaaa"; // 18 'a'
         String pattern = "aaaaa";           // 5 'a'
-        List<Integer> pos = KMPMatcher.search(text, pattern);
+        List<Integer> pos = KMPMatcher.search(text, pattern, ops);
         assertEquals(18 - 5 + 1, pos.size()); // 14 occurrences
         // With repetitive pattern there will be post-match resets for overlaps
-        assertTrue(OperationCounter.matchFallbacks >= 1);
+        assertTrue(ops.matchFallbacks() >= 1);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Compiled pattern (DFA and LPS layouts) agrees with search on all cases")
+    void testCompiledPatternMatchesSearch() {
+        String[][] cases = {
+                {"needle", "needle"}, {"abcdef", "xyz"}, {"aaaa", "aa"},
+                {"startXYZmiddleXYZendXYZ", "XYZ"}, {"short", "muchlongerpattern"},
+                {"anything", ""}, {"", "abc"}, {"αβγ-αβγ-αβ", "αβγ"},
+                {"abababacababaca", "ababaca"}, {"aaaaaaaaaaaaaaaaaa", "aaaaa"}
+        };
+        for (String[] c : cases) {
+            List<Integer> expected = KMPMatcher.search(c[0], c[1]);
+            CompiledPattern dfa = KMPMatcher.compile(c[1]);
+            CompiledPattern lps = KMPMatcher.compile(c[1], false);
+            assertFalse(lps.usesDfa());
+            assertEquals(expected, dfa.search(c[0]), c[1]);
+            assertEquals(expected, lps.search(c[0]), c[1]);
+            char[] padded = ("##" + c[0] + "##").toCharArray();
+            List<Integer> shifted = expected.stream().map(p -> p + 2).toList();
+            assertEquals(shifted, dfa.search(padded, 2, padded.length - 2), c[1]);
+            assertEquals(shifted, lps.search(padded, 2, padded.length - 2), c[1]);
+        }
+        assertTrue(KMPMatcher.compile("goal").usesDfa());
+        assertFalse(KMPMatcher.compile("αβγ").usesDfa());
+    }
+
+    @Test
+    @DisplayName("Primitive sink path collects the same offsets as the List API")
+    void testIntListSink() {
+        IntList sink = new IntList();
+        KMPMatcher.search("aaaaaaaaaaaaaaaaaa", "aaaaa", sink);
+        assertEquals(14, sink.size());
+        assertArrayEquals(
+                KMPMatcher.search("aaaaaaaaaaaaaaaaaa", "aaaaa").stream().mapToInt(Integer::intValue).toArray(),
+                sink.toArray());
+
+        IntList compiled = new IntList();
+        KMPMatcher.compile("XYZ").search("startXYZmiddleXYZendXYZ", compiled);
+        assertArrayEquals(new int[]{5, 14, 20}, compiled.toArray());
+    }
+
+    @Test
+    @DisplayName("Per-search counters stay isolated under concurrent searches")
+    void testCountersPerThread() throws Exception {
+        int threads = 8;
+        long[] comparisons = new long[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = Thread.ofVirtual().start(() -> {
+                OperationCounter ops = new OperationCounter();
+                for (int rep = 0; rep < 200; rep++) {
+                    KMPMatcher.search("a".repeat(100 + id), "b", ops);
+                }
+                comparisons[id] = ops.charComparisons();
+            });
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        for (int t = 0; t < threads; t++) {
+            assertEquals(200L * (100 + t), comparisons[t]);
+        }
+    }
+
+    @Test
+    @DisplayName("Uninstrumented search finds the same matches as the instrumented one")
+    void testUninstrumented() {
+        String text = "abababacababacaababaca";
+        OperationCounter ops = new OperationCounter();
+        assertEquals(KMPMatcher.search(text, "ababaca", ops), KMPMatcher.search(text, "ababaca"));
+        assertTrue(ops.charComparisons() > 0);
+        assertTrue(ops.fallbackSteps() > 0);
+    }
+}
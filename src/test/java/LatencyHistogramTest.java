@@ -0,0 +1,50 @@
+import almat.LatencyHistogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Percentile accuracy of the log-linear latency histogram.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Percentiles are within one bucket (1/16 relative) of the exact value")
+    void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        Random r = new Random(3);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(r.nextDouble() * 20); // 1 ns .. ~0.5 s, log-uniform
+            h.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999, 1.0}) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long reported = h.percentileNanos(q);
+            assertTrue(reported >= exact, q + ": " + reported + " < " + exact);
+            assertTrue(reported <= exact + exact / 16 + 1, q + ": " + reported + " vs " + exact);
+        }
+        assertEquals(values.length, h.count());
+        assertEquals(values[values.length - 1], h.maxNanos());
+        assertEquals(values.length, h.nonEmptyBuckets().stream().mapToLong(LatencyHistogram.Bucket::count).sum());
+    }
+
+    @Test
+    @DisplayName("Empty, tiny and huge values")
+    void testEdges() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.percentileNanos(0.99));
+        h.record(-5);
+        h.record(7);
+        h.record(Long.MAX_VALUE);
+        assertEquals(0, h.percentileNanos(0.3));
+        assertEquals(7, h.percentileNanos(0.6));
+        assertEquals(Long.MAX_VALUE, h.percentileNanos(1.0));
+        assertThrows(IllegalArgumentException.class, () -> h.percentileNanos(1.5));
+    }
+}
@@ -0,0 +1,74 @@
+import almat.BytePattern;
+import almat.KMPMatcher;
+import almat.LongList;
+import almat.MappedFileMatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Byte-level search over memory-mapped files.
+ */
+public class MappedFileMatcherTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("ASCII file: byte offsets equal char offsets")
+    void testAscii() throws Exception {
+        String text = "abc needle def needle xyz aaaa";
+        Path file = dir.resolve("a.txt");
+        Files.writeString(file, text, StandardCharsets.US_ASCII);
+
+        LongList found = new LongList();
+        long size = MappedFileMatcher.search(file, BytePattern.compile("needle", StandardCharsets.US_ASCII), found);
+        assertEquals(text.length(), size);
+        assertArrayEquals(new long[]{4, 15}, found.toArray());
+
+        LongList overlaps = new LongList();
+        MappedFileMatcher.search(file, BytePattern.compile("aa", StandardCharsets.US_ASCII), overlaps);
+        assertArrayEquals(new long[]{26, 27, 28}, overlaps.toArray());
+    }
+
+    @Test
+    @DisplayName("UTF-8 file: offsets are byte offsets of the encoded pattern")
+    void testUtf8() throws Exception {
+        String text = "αβγ-αβγ-αβ";
+        Path file = dir.resolve("u.txt");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+
+        LongList found = new LongList();
+        MappedFileMatcher.search(file, BytePattern.compile("αβγ", StandardCharsets.UTF_8), found);
+        assertArrayEquals(new long[]{0, 7}, found.toArray());
+        assertEquals(KMPMatcher.search(text, "αβγ").size(), found.size());
+    }
+
+    @Test
+    @DisplayName("Empty file and unencodable pattern")
+    void testEdgeCases() throws Exception {
+        Path file = dir.resolve("empty.txt");
+        Files.createFile(file);
+        LongList found = new LongList();
+        assertEquals(0, MappedFileMatcher.search(file, BytePattern.compile("x", StandardCharsets.UTF_8), found));
+        assertTrue(found.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> BytePattern.compile("αβγ", StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    @DisplayName("Charsets that are not self-synchronizing are rejected")
+    void testUnsupportedCharsets() {
+        // In UTF-16BE "\u0100\u0100" is 01 00 01 00, whose middle bytes 00 01 encode "\u0001": a false match.
+        assertThrows(IllegalArgumentException.class, () -> BytePattern.compile("x", StandardCharsets.UTF_16));
+        assertThrows(IllegalArgumentException.class, () -> BytePattern.compile("x", StandardCharsets.UTF_16BE));
+        assertThrows(IllegalArgumentException.class, () -> BytePattern.compile("x", Charset.forName("UTF-32")));
+        assertEquals(StandardCharsets.ISO_8859_1, BytePattern.compile("é", StandardCharsets.ISO_8859_1).charset());
+    }
+}
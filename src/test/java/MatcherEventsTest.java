@@ -0,0 +1,152 @@
+import almat.DatasetProcessor;
+import almat.JsonIO;
+import almat.KMPResult;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JFR compile/search events and the repeated-run latency percentiles.
+ */
+public class MatcherEventsTest {
+
+    @TempDir
+    Path dir;
+
+    private List<RecordedEvent> record(Runnable work) throws IOException {
+        Path jfr = dir.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("almat.Compile");
+            recording.enable("almat.Search");
+            recording.start();
+            work.run();
+            recording.stop();
+            recording.dump(jfr);
+        }
+        return RecordingFile.readAllEvents(jfr);
+    }
+
+    @Test
+    @DisplayName("Compile and search events carry dataset, engine, lengths and match count")
+    void testEvents() throws IOException {
+        DatasetProcessor.InputModel model = TestData.model("jfr", "aba", "abababa");
+        model.engine = "kmp";
+        List<RecordedEvent> events = record(() -> DatasetProcessor.processAll(model, true));
+
+        RecordedEvent compile = events.stream()
+                .filter(e -> e.getEventType().getName().equals("almat.Compile")).findFirst().orElseThrow();
+        assertEquals("jfr", compile.getString("dataset"));
+        assertEquals("kmp", compile.getString("engine"));
+        assertEquals(3, compile.getInt("patternLength"));
+        assertEquals(7, compile.getLong("textLength"));
+
+        RecordedEvent search = events.stream()
+                .filter(e -> e.getEventType().getName().equals("almat.Search")).findFirst().orElseThrow();
+        assertEquals("kmp", search.getString("engine"));
+        assertEquals("positions", search.getString("query"));
+        assertEquals(3, search.getInt("patternLength"));
+        assertEquals(7, search.getLong("textLength"));
+        assertEquals(3, search.getLong("matchCount"));
+    }
+
+    @Test
+    @DisplayName("A multi-pattern dataset emits one Aho-Corasick search event with the total match count")
+    void testAhoCorasickEvent() throws IOException {
+        DatasetProcessor.InputModel model = TestData.model("jfr", null, "she sells seashells");
+        model.patterns = List.of("she", "sea", "s");
+        List<RecordedEvent> events = record(() -> DatasetProcessor.processAll(model, false));
+
+        List<RecordedEvent> searches = events.stream()
+                .filter(e -> e.getEventType().getName().equals("almat.Search")).toList();
+        assertEquals(1, searches.size());
+        assertEquals("aho-corasick", searches.get(0).getString("engine"));
+        assertEquals(7, searches.get(0).getInt("patternLength"));
+        assertEquals(2 + 1 + 6, searches.get(0).getLong("matchCount"));
+    }
+
+    @Test
+    @DisplayName("A streamed dataset with fields after the text records the events of one search only")
+    void testTrailingFieldsEmitOneSearch() throws IOException {
+        Path file = dir.resolve("trailing.json");
+        Files.writeString(file, "{\"dataset\": \"jfr\", \"pattern\": \"aba\", \"text\": \"abababa\","
+                + " \"engine\": \"two-way\"}");
+        List<RecordedEvent> events = record(() -> {
+            try {
+                assertEquals(3, DatasetProcessor.processAll(file, true).get(0).getMatchCount());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        List<RecordedEvent> searches = events.stream()
+                .filter(e -> e.getEventType().getName().equals("almat.Search")).toList();
+        assertEquals(1, searches.size());
+        assertEquals("two-way", searches.get(0).getString("engine"));
+        assertEquals(1, events.stream().filter(e -> e.getEventType().getName().equals("almat.Compile")).count());
+    }
+
+    @Test
+    @DisplayName("JFR start-up is not timed: a fresh JVM's first dataset takes as long as the others")
+    void testFirstDatasetNotSlowed() throws Exception {
+        Path input = Files.createDirectories(dir.resolve("input"));
+        for (String name : List.of("a", "b", "c")) {
+            Files.writeString(input.resolve(name + ".json"),
+                    "{\"dataset\": \"" + name + "\", \"pattern\": \"goal\", \"text\": \"one goal, two goals\"}");
+        }
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments()); // --enable-preview etc.
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), "almat.Main"));
+        Process main = new ProcessBuilder(command).directory(dir.toFile()).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        assertEquals(0, main.waitFor());
+
+        List<String> rows = Files.readAllLines(dir.resolve("output/summary.csv"));
+        int elapsed = List.of(rows.get(0).split(",")).indexOf("elapsedMillis");
+        assertEquals(4, rows.size());
+        for (String row : rows.subList(1, rows.size())) {
+            // loading JFR took ~150 ms; class loading and interpretation of a first search take a few
+            assertTrue(Double.parseDouble(row.split(",")[elapsed]) < 50, row);
+        }
+    }
+
+    @Test
+    @DisplayName("Repeated runs report ordered percentiles in the result and the JSON output")
+    void testRepeatPercentiles() throws IOException {
+        String text = "abc".repeat(20_000);
+        List<KMPResult> results = DatasetProcessor.processAll(TestData.model("jfr", "cab", text), true, 50);
+        assertEquals(1, results.size());
+        KMPResult r = results.get(0);
+        assertEquals(19_999, r.getMatchCount());
+        assertTrue(r.getP50Millis() > 0);
+        assertTrue(r.getP50Millis() <= r.getP99Millis());
+        assertTrue(r.getP99Millis() <= r.getP999Millis());
+
+        KMPResult once = DatasetProcessor.processAll(TestData.model("jfr", "cab", text), true).get(0);
+        assertEquals(once.getElapsedMillis(), once.getP50Millis());
+        assertEquals(once.getElapsedMillis(), once.getP999Millis());
+
+        Path out = dir.resolve("out.json");
+        JsonIO.writeResults(out, results);
+        String json = Files.readString(out);
+        assertTrue(json.contains("\"p50Millis\""));
+        assertTrue(json.contains("\"p99Millis\""));
+        assertTrue(json.contains("\"p999Millis\""));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> DatasetProcessor.processAll(TestData.model("jfr", "cab", text), true, 0));
+    }
+}
@@ -0,0 +1,52 @@
+import almat.CompiledPattern;
+import almat.KMPMatcher;
+import almat.ParallelMatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ParallelMatcher must report exactly what the sequential search reports.
+ */
+public class ParallelMatcherTest {
+
+    @Test
+    @DisplayName("Overlapping matches across chunk seams, tiny chunks, caller-supplied executor")
+    void testAgainstSequential() {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Random r = new Random(3);
+            for (int round = 0; round < 100; round++) {
+                String text = TestData.randomString(r, 1 + r.nextInt(2_000));
+                String pattern = TestData.randomString(r, 1 + r.nextInt(8));
+                CompiledPattern compiled = KMPMatcher.compile(pattern);
+                int[] expected = TestData.kmp(text, pattern);
+
+                ParallelMatcher pm = new ParallelMatcher(compiled, 1 + r.nextInt(50), pool, 4);
+                assertArrayEquals(expected, pm.search(text), "pattern=" + pattern);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Small texts stay sequential with the default configuration")
+    void testDefaults() {
+        ParallelMatcher pm = new ParallelMatcher(KMPMatcher.compile("aa"));
+        assertArrayEquals(new int[]{0, 1, 2}, pm.search("aaaa"));
+        assertEquals(0, new ParallelMatcher(KMPMatcher.compile("")).search("abc").length);
+    }
+
+    @Test
+    @DisplayName("Invalid configuration is rejected")
+    void testInvalidConfig() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ParallelMatcher(KMPMatcher.compile("a"), 0, Runnable::run, 1));
+    }
+}
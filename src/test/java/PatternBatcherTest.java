@@ -0,0 +1,73 @@
+import almat.PatternBatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Batches share one prepare call, while every request is handled on its own thread.
+ */
+public class PatternBatcherTest {
+
+    @Test
+    @DisplayName("Requests for one key are handled in parallel, each on its submitting thread")
+    void testSameKeyRequestsOverlap() throws Exception {
+        int requests = 8;
+        AtomicInteger prepared = new AtomicInteger();
+        // Every handle waits for all the others: this only completes if all of them run at once.
+        CyclicBarrier together = new CyclicBarrier(requests);
+        PatternBatcher<String, Thread, Boolean> batcher = new PatternBatcher<>(key -> {
+            prepared.incrementAndGet();
+            return key.toUpperCase();
+        }, (context, submitter) -> {
+            assertEquals("HOT", context);
+            try {
+                together.await(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException("handles did not overlap", e);
+            }
+            return Thread.currentThread() == submitter;
+        }, 64);
+
+        List<Future<Boolean>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                futures.add(executor.submit(() -> batcher.submit("hot", Thread.currentThread())));
+            }
+        }
+        for (Future<Boolean> f : futures) {
+            assertTrue(f.get(), "handled on the submitting thread");
+        }
+        assertEquals(requests, batcher.batchedRequests());
+        assertEquals(batcher.batches(), prepared.get());
+        assertTrue(prepared.get() <= requests);
+    }
+
+    @Test
+    @DisplayName("A failing handle fails only its request; a failing prepare fails its batch")
+    void testFailures() throws Exception {
+        PatternBatcher<String, Integer, Integer> batcher = new PatternBatcher<>(key -> {
+            if (key.equals("broken")) {
+                throw new IllegalArgumentException("cannot compile");
+            }
+            return key;
+        }, (context, n) -> 10 / n, 64);
+
+        assertEquals(5, batcher.submit("ok", 2));
+        ExecutionException handled = assertThrows(ExecutionException.class, () -> batcher.submit("ok", 0));
+        assertInstanceOf(ArithmeticException.class, handled.getCause());
+        ExecutionException prepared = assertThrows(ExecutionException.class, () -> batcher.submit("broken", 1));
+        assertInstanceOf(IllegalArgumentException.class, prepared.getCause());
+        assertEquals(10, batcher.submit("ok", 1));
+    }
+}
@@ -0,0 +1,106 @@
+import almat.CompiledPattern;
+import almat.KMPMatcher;
+import almat.PatternCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hit/miss accounting, LRU and weight-based eviction, and admission limits of PatternCache.
+ */
+public class PatternCacheTest {
+
+    /** Single stripe so LRU order is global; weight = pattern length. */
+    private static PatternCache<String> lengthCache(int maxEntries, long maxWeight, long maxEntryWeight,
+                                                    AtomicInteger compiles) {
+        return new PatternCache<>(p -> {
+            compiles.incrementAndGet();
+            return p;
+        }, String::length, maxEntries, maxWeight, maxEntryWeight, 1);
+    }
+
+    @Test
+    @DisplayName("Repeated lookups hit; the least recently used entry is evicted first")
+    void testLruEviction() {
+        AtomicInteger compiles = new AtomicInteger();
+        PatternCache<String> cache = lengthCache(2, 1_000, 1_000, compiles);
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");          // a is now the most recent
+        cache.get("c");          // evicts b
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        cache.get("a");
+        assertEquals(3, compiles.get());
+        cache.get("b");          // was evicted: compiled again, evicts c
+        assertEquals(4, compiles.get());
+        assertEquals(2, cache.hits());
+        assertEquals(4, cache.misses());
+        assertEquals(2, cache.evictions());
+    }
+
+    @Test
+    @DisplayName("Total weight is bounded and overweight patterns are never admitted")
+    void testWeightLimits() {
+        AtomicInteger compiles = new AtomicInteger();
+        PatternCache<String> cache = lengthCache(100, 10, 6, compiles);
+        cache.get("aaaa");
+        cache.get("bbbb");
+        assertEquals(8, cache.weight());
+        cache.get("cccc");       // 12 > 10: evicts aaaa
+        assertEquals(8, cache.weight());
+        assertEquals(1, cache.evictions());
+
+        assertEquals("ddddddd", cache.get("ddddddd")); // weight 7 > 6: returned, not cached
+        cache.get("ddddddd");
+        assertEquals(2, cache.rejections());
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("Cached CompiledPatterns are shared and search correctly from many threads")
+    void testConcurrentCompiledPatterns() throws Exception {
+        PatternCache<CompiledPattern> cache = PatternCache.compiledPatterns(64, 1 << 20, 1 << 16);
+        String text = "abracadabra goal abracadabra goals ".repeat(50);
+        String[] patterns = {"abra", "goal", "cad", "a", "ra g", "zzz"};
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int k = 0; k < 600; k++) {
+                        String p = patterns[k % patterns.length];
+                        assertEquals(KMPMatcher.search(text, p), cache.get(p).search(text));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        }
+        assertEquals(8 * 600, cache.hits() + cache.misses());
+        assertTrue(cache.misses() >= patterns.length);
+        assertEquals(patterns.length, cache.size());
+        assertSame(cache.get("goal"), cache.get("goal"));
+        assertEquals(0, cache.evictions());
+        assertEquals(0, cache.rejections());
+        assertTrue(cache.weight() > 0);
+    }
+
+    @Test
+    @DisplayName("Invalid bounds are rejected")
+    void testInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> PatternCache.compiledPatterns(0, 10, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PatternCache<>(p -> p, String::length, 10, 10, 10, 3));
+    }
+}
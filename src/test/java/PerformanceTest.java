@@ -69,8 +69,8 @@ public class PerformanceTest {
 
     private static void warmup(String text, String pattern, int iterations) {
         for (int i = 0; i < iterations; i++) {
-            OperationCounter.reset();
-            KMPMatcher.search(text, pattern);
+            OperationCounter ops = new OperationCounter();
+            KMPMatcher.search(text, pattern, ops);
         }
     }
 
@@ -79,13 +79,13 @@ public class PerformanceTest {
         long[] comps = new long[trials];
 
         for (int t = 0; t < trials; t++) {
-            OperationCounter.reset();
+            OperationCounter ops = new OperationCounter();
             long start = System.nanoTime();
-            KMPMatcher.search(text, pattern);
+            KMPMatcher.search(text, pattern, ops);
             long elapsed = System.nanoTime() - start;
 
             times[t] = elapsed;
-            comps[t] = OperationCounter.charComparisons;
+            comps[t] = ops.charComparisons();
         }
 
         Arrays.sort(times);
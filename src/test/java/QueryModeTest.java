@@ -0,0 +1,154 @@
+import almat.DatasetProcessor;
+import almat.EngineSelector;
+import almat.JsonIO;
+import almat.KMPMatcher;
+import almat.KMPResult;
+import almat.Matcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query modes (exists, count, first-k, positions): same answers as a full search, with less work.
+ */
+public class QueryModeTest {
+
+    private static final List<String> ENGINES = List.of("kmp", "kmp-dfa", "horspool", "horspool-bounded", "two-way",
+            "kmp-simd");
+
+    @TempDir
+    Path dir;
+
+    private static DatasetProcessor.InputModel model(String pattern, String text, String query, Integer k) {
+        DatasetProcessor.InputModel model = TestData.model("q", pattern, text);
+        model.query = query;
+        model.k = k;
+        return model;
+    }
+
+    @Test
+    @DisplayName("exists, count and first agree with a full search on every engine")
+    void testMatcherQueries() {
+        Random r = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            String text = TestData.randomString(r, r.nextInt(300), 3);
+            String pattern = text.isEmpty() || r.nextInt(4) == 0
+                    ? "abca"
+                    : text.substring(0, 1 + r.nextInt(Math.min(5, text.length())));
+            int[] all = TestData.kmp(text, pattern);
+            int k = 1 + r.nextInt(4);
+            for (String engine : ENGINES) {
+                Matcher m = EngineSelector.compile(engine, pattern, null);
+                assertEquals(all.length > 0, m.exists(text), engine);
+                assertEquals(all.length, m.count(text), engine);
+                assertArrayEquals(Arrays.copyOf(all, Math.min(k, all.length)), m.first(text, k), engine);
+            }
+        }
+        assertEquals(2, KMPMatcher.count("aaa", "aa"));
+        assertTrue(KMPMatcher.exists("xxgoal", "goal"));
+        assertArrayEquals(new int[]{0}, KMPMatcher.first("aaa", "aa", 1));
+        assertThrows(IllegalArgumentException.class, () -> KMPMatcher.first("aaa", "aa", 0));
+    }
+
+    @Test
+    @DisplayName("Dataset query modes are recorded, and exists / first-k stop scanning early")
+    void testDatasetModes() {
+        String text = "goal " + "x".repeat(10_000) + " goal goal";
+        KMPResult positions = DatasetProcessor.processAll(model("goal", text, null, null), true).get(0);
+        assertEquals("positions", positions.getQuery());
+        assertEquals(3, positions.getMatchCount());
+        assertArrayEquals(TestData.kmpLongs(text, "goal"), positions.getMatches());
+
+        KMPResult count = DatasetProcessor.processAll(model("goal", text, "count", null), true).get(0);
+        assertEquals("count", count.getQuery());
+        assertEquals(3, count.getMatchCount());
+        assertEquals(0, count.getMatches().length);
+        assertEquals(positions.getCharComparisons(), count.getCharComparisons());
+
+        KMPResult exists = DatasetProcessor.processAll(model("goal", text, "EXISTS", null), true).get(0);
+        assertEquals("exists", exists.getQuery());
+        assertEquals(1, exists.getMatchCount());
+        assertArrayEquals(new long[]{0}, exists.getMatches());
+        assertTrue(exists.getCharComparisons() < 100, "comparisons " + exists.getCharComparisons());
+        assertEquals(text.length(), exists.getTextLength());
+
+        KMPResult first = DatasetProcessor.processAll(model("goal", text, "first-k", 2), true).get(0);
+        assertEquals(2, first.getMatchCount());
+        assertArrayEquals(Arrays.copyOf(positions.getMatches(), 2), first.getMatches());
+        assertTrue(first.getCharComparisons() < positions.getCharComparisons());
+
+        KMPResult none = DatasetProcessor.processAll(model("miss", text, "exists", null), true).get(0);
+        assertEquals(0, none.getMatchCount());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> DatasetProcessor.processAll(model("goal", text, "first-k", null), true));
+        assertThrows(IllegalArgumentException.class,
+                () -> DatasetProcessor.processAll(model("goal", text, "some", null), true));
+    }
+
+    @Test
+    @DisplayName("Multi-pattern exists stops once every pattern has matched")
+    void testMultiPatternExists() {
+        DatasetProcessor.InputModel model = model(null, "ushers" + "z".repeat(5_000) + "she", "exists", null);
+        model.patterns = List.of("he", "she", "hers");
+        List<KMPResult> results = DatasetProcessor.processAll(model, true);
+        assertArrayEquals(new long[]{2}, results.get(0).getMatches());
+        assertArrayEquals(new long[]{1}, results.get(1).getMatches());
+        assertArrayEquals(new long[]{2}, results.get(2).getMatches());
+        assertTrue(results.get(0).getCharComparisons() < 100);
+    }
+
+    @Test
+    @DisplayName("Streamed datasets stop searching early but still report the full text length")
+    void testStreamedModes() throws IOException {
+        Random r = new Random(23);
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 400_000) {
+            sb.append(r.nextInt(50) == 0 ? "goal" : "x\\é");
+        }
+        String text = sb.toString();
+        long[] all = TestData.kmpLongs(text, "goal");
+        for (String engine : ENGINES) {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("dataset", "stream");
+            fields.put("pattern", "goal");
+            fields.put("engine", engine);
+            fields.put("query", "first-k");
+            fields.put("k", all.length - 1);
+            fields.put("text", text);
+            Path file = dir.resolve(engine + ".json");
+            JsonIO.write(file, fields);
+            KMPResult first = DatasetProcessor.processAll(file, true).get(0);
+            assertArrayEquals(Arrays.copyOf(all, all.length - 1), first.getMatches(), engine);
+            assertEquals(text.length(), first.getTextLength(), engine);
+
+            fields.put("query", "count");
+            JsonIO.write(file, fields);
+            KMPResult count = DatasetProcessor.processAll(file, true).get(0);
+            assertEquals(all.length, count.getMatchCount(), engine);
+            assertEquals(0, count.getMatches().length, engine);
+        }
+
+        Map<String, Object> multi = new LinkedHashMap<>();
+        multi.put("patterns", List.of("goal", "x\\"));
+        multi.put("query", "exists");
+        multi.put("text", text);
+        Path file = dir.resolve("multi.json");
+        JsonIO.write(file, multi);
+        List<KMPResult> results = DatasetProcessor.processAll(file, true);
+        assertArrayEquals(Arrays.copyOf(all, 1), results.get(0).getMatches());
+        assertArrayEquals(new long[]{text.indexOf("x\\")}, results.get(1).getMatches());
+        assertEquals(text.length(), results.get(0).getTextLength());
+        assertTrue(results.get(0).getCharComparisons() < text.length() / 2);
+    }
+}
@@ -0,0 +1,109 @@
+import almat.BinaryResults;
+import almat.JsonIO;
+import almat.KMPResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Streaming JSON writer and the compact binary result format.
+ */
+public class ResultOutputTest {
+
+    @TempDir
+    Path dir;
+
+    private static KMPResult result(String dataset, String pattern, long... matches) {
+        return new KMPResult(dataset, pattern, "kmp", 5_000_000_000L, matches, 123, 4, 5, 6, 0.125);
+    }
+
+    @Test
+    @DisplayName("Streaming JSON writer produces the same bytes as ObjectMapper")
+    void testJsonMatchesObjectMapper() throws IOException {
+        KMPResult single = result("football_small", "goal", 17);
+        KMPResult other = result(null, "golé \"x\"", 0, 3, 4_294_967_296L);
+        KMPResult empty = result("d", "p");
+        KMPResult counted = new KMPResult("d", "p", "kmp", "count", 10, 4, new long[0], 10, 0, 0, 0, 0.5);
+
+        for (List<KMPResult> results : List.of(List.of(single), List.of(single, other, empty, counted))) {
+            Path viaMapper = dir.resolve("mapper.json");
+            Path streamed = dir.resolve("streamed.json");
+            JsonIO.write(viaMapper, results.size() == 1 ? results.get(0) : results);
+            JsonIO.writeResults(streamed, results);
+            assertEquals(Files.readString(viaMapper), Files.readString(streamed));
+        }
+    }
+
+    @Test
+    @DisplayName("Binary results round-trip exactly, including nulls, unicode and offsets above 2^32")
+    void testBinaryRoundTrip() throws IOException {
+        long[] dense = new long[10_000];
+        for (int i = 0; i < dense.length; i++) {
+            dense[i] = 3L * i + 1;
+        }
+        List<KMPResult> results = List.of(
+                result("football_small", "goal", 17),
+                result(null, "golé 😀", 0, 3, 4_294_967_296L, Long.MAX_VALUE),
+                result("dense", "x", dense),
+                result("none", ""),
+                new KMPResult("first", "ab", "kmp", "first-k", 90, 2, new long[]{4, 9}, 11, 1, 0, 1, 0.25));
+        Path file = dir.resolve("out" + BinaryResults.EXTENSION);
+        BinaryResults.write(file, results);
+        List<KMPResult> back = BinaryResults.read(file);
+
+        assertEquals(results.size(), back.size());
+        for (int k = 0; k < results.size(); k++) {
+            KMPResult a = results.get(k);
+            KMPResult b = back.get(k);
+            assertEquals(a.getDataset(), b.getDataset());
+            assertEquals(a.getPattern(), b.getPattern());
+            assertEquals(a.getEngine(), b.getEngine());
+            assertEquals(a.getQuery(), b.getQuery());
+            assertEquals(a.getTextLength(), b.getTextLength());
+            assertEquals(a.getMatchCount(), b.getMatchCount());
+            assertArrayEquals(a.getMatches(), b.getMatches());
+            assertEquals(a.getCharComparisons(), b.getCharComparisons());
+            assertEquals(a.getFallbackSteps(), b.getFallbackSteps());
+            assertEquals(a.getMatchFallbacks(), b.getMatchFallbacks());
+            assertEquals(a.getLpsComputations(), b.getLpsComputations());
+            assertEquals(a.getElapsedMillis(), b.getElapsedMillis());
+        }
+
+        // Dense matches take one byte each (delta 3)
+        Path json = dir.resolve("dense.json");
+        JsonIO.writeResults(json, List.of(results.get(2)));
+        Path bin = dir.resolve("dense" + BinaryResults.EXTENSION);
+        BinaryResults.write(bin, List.of(results.get(2)));
+        assertTrue(Files.size(bin) < dense.length + 100, "binary size " + Files.size(bin));
+        assertTrue(Files.size(bin) * 5 < Files.size(json));
+    }
+
+    @Test
+    @DisplayName("Reader rejects foreign, other-version and truncated files")
+    void testBinaryRejectsBadInput() throws IOException {
+        assertThrows(IOException.class,
+                () -> BinaryResults.read(new ByteArrayInputStream("{\"dataset\":1}".getBytes())));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryResults.write(out, List.of(result("a", "b", 1, 2, 3)));
+        byte[] bytes = out.toByteArray();
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+        assertThrows(EOFException.class, () -> BinaryResults.read(new ByteArrayInputStream(truncated)));
+
+        byte[] older = bytes.clone();
+        older[4]--; // the version byte follows the 4-byte magic
+        IOException e = assertThrows(IOException.class, () -> BinaryResults.read(new ByteArrayInputStream(older)));
+        assertTrue(e.getMessage().contains("version"), e.getMessage());
+    }
+}
@@ -0,0 +1,135 @@
+import almat.SearchServer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end tests of the localhost search server.
+ */
+public class SearchServerTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private SearchServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = SearchServer.start(0, 64, true);
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+        client.close();
+    }
+
+    private HttpResponse<String> post(Object body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/search"))
+                .POST(HttpRequest.BodyPublishers.ofString(JSON.writeValueAsString(body)))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private JsonNode get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path)).build();
+        return JSON.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private static List<Long> positions(JsonNode result) {
+        List<Long> out = new ArrayList<>();
+        result.get("matches").forEach(n -> out.add(n.asLong()));
+        return out;
+    }
+
+    @Test
+    @DisplayName("Single-pattern request returns the same result fields as batch mode")
+    void testSearch() throws Exception {
+        String text = "Ronaldo scored a goal in the 89th minute as the crowd erupted.";
+        HttpResponse<String> response = post(Map.of("dataset", "football_small", "pattern", "goal", "text", text));
+        assertEquals(200, response.statusCode());
+        JsonNode result = JSON.readTree(response.body());
+        assertEquals("football_small", result.get("dataset").asText());
+        assertEquals("kmp", result.get("engine").asText());
+        assertEquals(List.of(17L), positions(result));
+        assertEquals(62, result.get("charComparisons").asLong());
+        assertEquals(3, result.get("lpsComputations").asLong());
+    }
+
+    @Test
+    @DisplayName("Concurrent requests for one pattern are batched and all answered correctly")
+    void testConcurrentBatching() throws Exception {
+        int requests = 48;
+        List<Future<HttpResponse<String>>> futures = new ArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int k = 0; k < requests; k++) {
+                String text = "abcab".repeat(k + 1) + "x".repeat(k);
+                futures.add(pool.submit(() -> post(Map.of("dataset", "d" + text.length(), "pattern", "cab",
+                        "text", text))));
+            }
+            for (Future<HttpResponse<String>> f : futures) {
+                HttpResponse<String> response = f.get();
+                assertEquals(200, response.statusCode(), response.body());
+                JsonNode result = JSON.readTree(response.body());
+                int k = (result.get("textLength").asInt() - 5) / 6;
+                String text = "abcab".repeat(k + 1) + "x".repeat(k);
+                assertEquals(TestData.kmpList(text, "cab"), positions(result));
+            }
+        }
+
+        JsonNode stats = get("/stats");
+        assertEquals(requests, stats.get("requests").asLong());
+        assertEquals(requests, stats.get("batchedRequests").asLong());
+        assertTrue(stats.get("batches").asLong() <= requests);
+        assertEquals(0, stats.get("failed").asLong());
+        // one engine ("kmp") and one pattern: compiled once, then served from the cache
+        assertEquals(1, stats.get("cache").get("size").asLong());
+
+        JsonNode latency = get("/latency");
+        assertEquals(requests, latency.get("count").asLong());
+        assertTrue(latency.get("p99Millis").asDouble() >= latency.get("p50Millis").asDouble());
+        assertFalse(latency.get("buckets").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Multi-pattern datasets return one result per pattern")
+    void testMultiPattern() throws Exception {
+        HttpResponse<String> response = post(Map.of("patterns", List.of("he", "she", "hers"), "text", "ushers"));
+        assertEquals(200, response.statusCode());
+        JsonNode results = JSON.readTree(response.body());
+        assertEquals(3, results.size());
+        assertEquals("aho-corasick", results.get(0).get("engine").asText());
+        assertEquals(List.of(2L), positions(results.get(0)));
+        assertEquals(List.of(1L), positions(results.get(1)));
+        assertEquals(List.of(2L), positions(results.get(2)));
+    }
+
+    @Test
+    @DisplayName("Malformed requests get 400 and wrong methods 405")
+    void testErrors() throws Exception {
+        assertEquals(400, post(Map.of("pattern", "a")).statusCode());
+        assertEquals(400, post(Map.of("pattern", "a", "text", "a", "engine", "nope")).statusCode());
+        assertEquals(400, post(Map.of("text", "a", "colour", "red")).statusCode());
+        HttpRequest get = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + "/search")).build();
+        assertEquals(405, client.send(get, HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(3, get("/stats").get("failed").asLong());
+    }
+}
@@ -0,0 +1,123 @@
+import almat.DatasetProcessor;
+import almat.JsonIO;
+import almat.KMPResult;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dataset files are streamed into the matcher; results must match an in-memory search.
+ */
+public class StreamingDatasetTest {
+
+    @TempDir
+    Path dir;
+
+    private Path dataset(String name, Map<String, Object> fields) throws IOException {
+        Path file = dir.resolve(name + ".json");
+        JsonIO.write(file, fields);
+        return file;
+    }
+
+    @Test
+    @DisplayName("Multi-chunk text with escapes: matches across chunk boundaries are found once")
+    void testLongTextAcrossChunks() throws IOException {
+        Random r = new Random(5);
+        StringBuilder sb = new StringBuilder();
+        String[] pieces = {"goal", "go", "al", "\"", "\\", "\n", "é", "😀", "x"};
+        while (sb.length() < 300_000) {
+            sb.append(pieces[r.nextInt(pieces.length)]);
+        }
+        String text = sb.toString();
+        for (String engine : List.of("auto", "kmp", "kmp-dfa", "horspool", "two-way")) {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("dataset", "long");
+            fields.put("pattern", "goal\"go");
+            fields.put("engine", engine);
+            fields.put("text", text);
+            KMPResult result = DatasetProcessor.processAll(dataset("long-" + engine, fields), false).get(0);
+            assertEquals(text.length(), result.getTextLength(), engine);
+            assertArrayEquals(TestData.kmpLongs(text, "goal\"go"), result.getMatches(), engine);
+        }
+    }
+
+    @Test
+    @DisplayName("Multi-pattern datasets stream through Aho–Corasick without duplicate overlap matches")
+    void testMultiPatternAcrossChunks() throws IOException {
+        String text = "ab".repeat(100_000) + "abc";
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("dataset", "multi");
+        fields.put("patterns", List.of("ab", "babab", "c"));
+        fields.put("text", text);
+        List<KMPResult> results = DatasetProcessor.processAll(dataset("multi", fields), true);
+        assertEquals(3, results.size());
+        for (KMPResult result : results) {
+            assertArrayEquals(TestData.kmpLongs(text, result.getPattern()), result.getMatches(), result.getPattern());
+            assertEquals(text.length(), result.getTextLength());
+        }
+    }
+
+    @Test
+    @DisplayName("\\u escapes (including surrogate pairs) are decoded like Jackson does")
+    void testUnicodeEscapes() throws IOException {
+        Path file = dir.resolve("escapes.json");
+        Files.writeString(file, "{\"dataset\":\"e\",\"pattern\":\"\\u00e9\\ud83d\\ude00\","
+                + "\"text\":\"a\\u00E9\\uD83D\\uDE00\\/\\té😀\"}\n");
+        KMPResult result = DatasetProcessor.process(file);
+        assertEquals(9, result.getTextLength());
+        assertArrayEquals(new long[]{1, 6}, result.getMatches());
+    }
+
+    @Test
+    @DisplayName("Fields after the text are applied to the whole search; malformed trailers are rejected")
+    void testTextBeforePattern() throws IOException {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("text", "one goal, two goals");
+        fields.put("pattern", "goal");
+        fields.put("dataset", "reordered");
+        KMPResult result = DatasetProcessor.processAll(dataset("reordered", fields), true).get(0);
+        assertEquals("reordered", result.getDataset());
+        assertArrayEquals(new long[]{4, 14}, result.getMatches());
+        assertEquals(19, result.getTextLength());
+
+        Map<String, Object> split = new LinkedHashMap<>(); // search-relevant fields on both sides
+        split.put("dataset", "split");
+        split.put("pattern", "GOAL");
+        split.put("text", "one goal, two Goals");
+        split.put("engine", "two-way");
+        split.put("folding", "ascii");
+        split.put("query", "count");
+        KMPResult r = DatasetProcessor.processAll(dataset("split", split), true).get(0);
+        assertEquals("two-way+ascii", r.getEngine());
+        assertEquals(2, r.getMatchCount());
+
+        Path noComma = dir.resolve("no-comma.json");
+        Files.writeString(noComma, "{\"pattern\": \"goal\", \"text\": \"goal\" \"engine\": \"kmp\"}");
+        assertThrows(IOException.class, () -> DatasetProcessor.processAll(noComma, true));
+        Path trailingComma = dir.resolve("trailing-comma.json");
+        Files.writeString(trailingComma, "{\"pattern\": \"goal\", \"text\": \"goal\",}");
+        assertThrows(IOException.class, () -> DatasetProcessor.processAll(trailingComma, true));
+    }
+
+    @Test
+    @DisplayName("Unknown fields are still rejected")
+    void testUnknownField() throws IOException {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("pattern", "goal");
+        fields.put("colour", "red");
+        fields.put("text", "goal");
+        Path file = dataset("unknown", fields);
+        assertThrows(UnrecognizedPropertyException.class, () -> DatasetProcessor.processAll(file, true));
+    }
+}
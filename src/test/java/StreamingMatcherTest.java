@@ -0,0 +1,78 @@
+import almat.KMPMatcher;
+import almat.StreamingMatcher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Chunk-boundary tests for StreamingMatcher.
+ */
+public class StreamingMatcherTest {
+
+    @Test
+    @DisplayName("Match straddling two chunks is reported once with its absolute offset")
+    void testStraddlingMatch() {
+        StreamingMatcher sm = new StreamingMatcher("goal");
+        List<Long> found = new ArrayList<>();
+        sm.feed("a go".toCharArray(), found::add);
+        assertEquals(2, sm.state());
+        sm.feed("al and goa".toCharArray(), found::add);
+        sm.feed("l".toCharArray(), found::add);
+        assertEquals(List.of(2L, 11L), found);
+        assertEquals(15, sm.offset());
+    }
+
+    @Test
+    @DisplayName("Randomized chunking agrees with whole-text search (DFA and LPS layouts)")
+    void testRandomChunks() {
+        Random r = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            String text = TestData.randomString(r, 1 + r.nextInt(300));
+            String pattern = TestData.randomString(r, 1 + r.nextInt(5));
+            List<Long> expected = TestData.kmpList(text, pattern);
+
+            for (boolean dfa : new boolean[]{true, false}) {
+                StreamingMatcher sm = new StreamingMatcher(KMPMatcher.compile(pattern, dfa));
+                List<Long> found = new ArrayList<>();
+                char[] chars = text.toCharArray();
+                int pos = 0;
+                while (pos < chars.length) {
+                    int len = Math.min(chars.length - pos, r.nextInt(7));
+                    sm.feed(chars, pos, pos + len, found::add);
+                    pos += len;
+                }
+                assertEquals(expected, found, "text=" + text + " pattern=" + pattern);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Reader and InputStream entry points use small buffers correctly")
+    void testReaderAndStream() throws Exception {
+        String text = "αβγ-αβγ-αβ".repeat(100);
+        List<Long> expected = TestData.kmpList(text, "αβγ");
+
+        List<Long> viaReader = new ArrayList<>();
+        long consumed = new StreamingMatcher("αβγ").search(new StringReader(text), viaReader::add, 5);
+        assertEquals(text.length(), consumed);
+        assertEquals(expected, viaReader);
+
+        List<Long> viaStream = new ArrayList<>();
+        new StreamingMatcher("αβγ").search(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8, viaStream::add);
+        assertEquals(expected, viaStream);
+
+        StreamingMatcher matcher = new StreamingMatcher("αβγ");
+        assertThrows(IllegalArgumentException.class, () -> matcher.search(new StringReader(text), pos -> {}, 0));
+        assertThrows(IllegalArgumentException.class, () -> matcher.search(new StringReader(text), pos -> {}, -1));
+        assertEquals(0, matcher.offset());
+    }
+}
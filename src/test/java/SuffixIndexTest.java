@@ -0,0 +1,139 @@
+import almat.DatasetProcessor;
+import almat.JsonIO;
+import almat.KMPResult;
+import almat.OperationCounter;
+import almat.SuffixIndex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Persistent suffix-array index: same occurrences as KMP, sublinear queries, reuse across runs.
+ */
+public class SuffixIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Occurrences and counts agree with KMP on random, repetitive and unicode texts")
+    void testAgainstKmp() throws IOException {
+        Random r = new Random(29);
+        List<String> texts = new ArrayList<>(List.of("", "a", "aaaaaaaaaaaa", "abababababa", "golé 😀 golé",
+                "mississippi"));
+        for (int t = 0; t < 30; t++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = r.nextInt(2_000); i > 0; i--) {
+                sb.append((char) ('a' + r.nextInt(1 + t % 4)));
+            }
+            texts.add(sb.toString());
+        }
+        Path file = dir.resolve("t" + SuffixIndex.EXTENSION);
+        for (String text : texts) {
+            SuffixIndex.build(text, file);
+            try (SuffixIndex index = SuffixIndex.open(file)) {
+                assertEquals(text.length(), index.textLength());
+                for (int q = 0; q < 40; q++) {
+                    String pattern;
+                    if (text.isEmpty() || q % 5 == 0) {
+                        pattern = q % 2 == 0 ? "ab" : "ssi";
+                    } else {
+                        int from = r.nextInt(text.length());
+                        pattern = text.substring(from, Math.min(text.length(), from + 1 + r.nextInt(6)));
+                    }
+                    int[] expected = TestData.kmp(text, pattern);
+                    assertArrayEquals(expected, index.occurrences(pattern), text + " / " + pattern);
+                    assertEquals(expected.length, index.count(pattern), text + " / " + pattern);
+                }
+                assertEquals(0, index.count(""));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Counting compares O(m log n) chars, independent of text length and match count")
+    void testSublinearCount() throws IOException {
+        String text = "ab".repeat(100_000) + "goal" + "ab".repeat(100_000);
+        Path file = dir.resolve("big" + SuffixIndex.EXTENSION);
+        SuffixIndex.build(text, file);
+        try (SuffixIndex index = SuffixIndex.open(file)) {
+            OperationCounter ops = new OperationCounter();
+            assertEquals(1, index.count("goal", ops));
+            assertTrue(ops.charComparisons() < 4 * 2 * 20, "comparisons " + ops.charComparisons());
+
+            OperationCounter many = new OperationCounter();
+            assertEquals(199_998, index.count("aba", many));
+            assertTrue(many.charComparisons() < 3 * 2 * 20 + 40, "comparisons " + many.charComparisons());
+        }
+    }
+
+    @Test
+    @DisplayName("Foreign and truncated files are rejected")
+    void testRejectsBadFiles() throws IOException {
+        Path foreign = dir.resolve("foreign" + SuffixIndex.EXTENSION);
+        Files.writeString(foreign, "{\"dataset\": \"not an index\"}");
+        assertThrows(IOException.class, () -> SuffixIndex.open(foreign));
+
+        Path truncated = dir.resolve("truncated" + SuffixIndex.EXTENSION);
+        SuffixIndex.build("abcabc", truncated);
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 2));
+        assertThrows(IOException.class, () -> SuffixIndex.open(truncated));
+    }
+
+    @Test
+    @DisplayName("A dataset's index is built once and reused; all patterns and query modes are answered from it")
+    void testIndexedDataset() throws IOException {
+        String text = "Ronaldo scored a goal, then another goal; the goalkeeper sighed.";
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("dataset", "idx");
+        fields.put("patterns", List.of("goal", "the", "penalty"));
+        fields.put("text", text);
+        Path input = dir.resolve("idx.json");
+        JsonIO.write(input, fields);
+        Path indexFile = dir.resolve("idx" + SuffixIndex.EXTENSION);
+
+        List<KMPResult> built = DatasetProcessor.processIndexed(input, indexFile, true);
+        assertTrue(Files.exists(indexFile));
+        assertEquals(3, built.size());
+        assertEquals("suffix-array", built.get(0).getEngine());
+        assertArrayEquals(new long[]{17, 36, 46}, built.get(0).getMatches());
+        assertArrayEquals(new long[]{23, 31, 42}, built.get(1).getMatches());
+        assertEquals(0, built.get(2).getMatchCount());
+        assertTrue(built.get(0).getLpsComputations() > 0);
+
+        List<KMPResult> reused = DatasetProcessor.processIndexed(input, indexFile, true);
+        assertArrayEquals(built.get(0).getMatches(), reused.get(0).getMatches());
+        assertEquals(0, reused.get(0).getLpsComputations());
+
+        fields.put("query", "count");
+        JsonIO.write(input, fields);
+        List<KMPResult> counted = DatasetProcessor.processIndexed(input, indexFile, true);
+        assertEquals(3, counted.get(0).getMatchCount());
+        assertEquals(0, counted.get(0).getMatches().length);
+        assertEquals(0, counted.get(0).getLpsComputations()); // same text: still reused
+
+        // Same-length text with an older timestamp (as after cp -p): only the content shows it changed
+        fields.put("text", text.replace("Ronaldo", "goalie!"));
+        fields.put("query", "positions");
+        JsonIO.write(input, fields);
+        Files.setLastModifiedTime(input, FileTime.from(Instant.EPOCH));
+        List<KMPResult> rebuilt = DatasetProcessor.processIndexed(input, indexFile, true);
+        assertArrayEquals(new long[]{0, 17, 36, 46}, rebuilt.get(0).getMatches());
+        assertTrue(rebuilt.get(0).getLpsComputations() > 0);
+    }
+}
@@ -0,0 +1,51 @@
+import almat.DatasetProcessor;
+import almat.KMPMatcher;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fixtures shared by the tests: random texts, KMP reference answers and input models.
+ */
+final class TestData {
+
+    private TestData() {}
+
+    /** Random text over {a, b}: small alphabets give many overlapping and boundary-crossing matches. */
+    static String randomString(Random r, int len) {
+        return randomString(r, len, 2);
+    }
+
+    /** Random text over the first {@code sigma} letters from 'a'. */
+    static String randomString(Random r, int len, int sigma) {
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) {
+            sb.append((char) ('a' + r.nextInt(sigma)));
+        }
+        return sb.toString();
+    }
+
+    /** Reference match offsets, from KMPMatcher. */
+    static int[] kmp(String text, String pattern) {
+        return KMPMatcher.search(text, pattern).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** {@link #kmp} as longs, the offset type of KMPResult and LongMatchSink. */
+    static long[] kmpLongs(String text, String pattern) {
+        return KMPMatcher.search(text, pattern).stream().mapToLong(Integer::longValue).toArray();
+    }
+
+    /** {@link #kmpLongs} as a list, for comparing with collected matches. */
+    static List<Long> kmpList(String text, String pattern) {
+        return KMPMatcher.search(text, pattern).stream().map(Integer::longValue).toList();
+    }
+
+    /** A single-pattern dataset with the default engine and query. */
+    static DatasetProcessor.InputModel model(String dataset, String pattern, String text) {
+        DatasetProcessor.InputModel model = new DatasetProcessor.InputModel();
+        model.dataset = dataset;
+        model.pattern = pattern;
+        model.text = text;
+        return model;
+    }
+}
@@ -0,0 +1,124 @@
+import almat.DatasetProcessor;
+import almat.JsonIO;
+import almat.KMPMatcher;
+import almat.KMPResult;
+import almat.RegressionGate;
+import almat.WorkloadGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Generated workloads and the summary.csv regression gate.
+ */
+public class WorkloadTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Every workload kind streams, has the requested length and the matches of a full search")
+    void testGeneratedDatasets() throws IOException {
+        int length = 200_000; // several stream chunks
+        for (WorkloadGenerator.Kind kind : WorkloadGenerator.Kind.values()) {
+            Path file = dir.resolve(kind.id() + ".json");
+            WorkloadGenerator.write(file, kind, length, 7, null, null, null);
+            DatasetProcessor.InputModel model = JsonIO.read(file, DatasetProcessor.InputModel.class);
+            assertEquals(length, model.text.length(), kind.id());
+            assertEquals(kind.id() + "_" + length, model.dataset);
+
+            KMPResult r = DatasetProcessor.processAll(file, true).get(0);
+            long[] expected = KMPMatcher.search(model.text, model.pattern).stream()
+                    .mapToLong(Integer::longValue).toArray();
+            assertArrayEquals(expected, r.getMatches(), kind.id());
+        }
+
+        Path again = dir.resolve("again.json");
+        WorkloadGenerator.write(again, WorkloadGenerator.Kind.ZIPF, length, 7, null, null, null);
+        assertEquals(-1, Files.mismatch(dir.resolve("zipf.json"), again));
+        assertTrue(DatasetProcessor.processAll(again, true).get(0).getMatchCount() > 100); // a frequent word
+    }
+
+    @Test
+    @DisplayName("The worst case has one match at the end and costs KMP under two comparisons per char")
+    void testWorstCase() throws IOException {
+        Path file = dir.resolve("worst.json");
+        WorkloadGenerator.write(file, WorkloadGenerator.Kind.WORST_CASE, 100_000, 1, null, "kmp", null);
+        KMPResult r = DatasetProcessor.processAll(file, true).get(0);
+        assertArrayEquals(new long[]{100_000 - 32}, r.getMatches());
+        assertTrue(r.getCharComparisons() < 2L * r.getTextLength());
+    }
+
+    @Test
+    @DisplayName("The Horspool worst case costs plain Horspool ~m comparisons per char, the bounded one a few")
+    void testHorspoolWorstCase() throws IOException {
+        Path plain = dir.resolve("plain.json");
+        WorkloadGenerator.write(plain, WorkloadGenerator.Kind.HORSPOOL_WORST_CASE, 100_000, 1, null, "horspool", null);
+        KMPResult r = DatasetProcessor.processAll(plain, true).get(0);
+        assertEquals(0, r.getMatchCount());
+        assertTrue(r.getCharComparisons() > 30L * r.getTextLength(), "comparisons=" + r.getCharComparisons());
+
+        Path bounded = dir.resolve("bounded.json");
+        WorkloadGenerator.write(bounded, WorkloadGenerator.Kind.HORSPOOL_WORST_CASE, 100_000, 1, null,
+                "horspool-bounded", null);
+        KMPResult b = DatasetProcessor.processAll(bounded, true).get(0);
+        assertEquals(0, b.getMatchCount());
+        assertTrue(b.getCharComparisons() < 5L * b.getTextLength(), "comparisons=" + b.getCharComparisons());
+    }
+
+    @Test
+    @DisplayName("The gate flags slower rows, more comparisons per char and missing rows only")
+    void testCompare() {
+        RegressionGate.Thresholds limits = new RegressionGate.Thresholds(0.10, 0.0, 1.0);
+        List<RegressionGate.Row> baseline = List.of(
+                new RegressionGate.Row("a,kmp,positions,4", 1_000_000, 1_010_000, 10.0),
+                new RegressionGate.Row("b,kmp,positions,4", 1_000_000, 1_010_000, 10.0),
+                new RegressionGate.Row("tiny,kmp,positions,4", 600, 617, 0.05),
+                new RegressionGate.Row("gone,kmp,positions,4", 600, 617, 2.0));
+        List<RegressionGate.Row> current = List.of(
+                new RegressionGate.Row("a,kmp,positions,4", 1_000_000, 1_010_000, 10.5), // within 10%
+                new RegressionGate.Row("b,kmp,positions,4", 1_000_000, 1_200_000, 12.0),
+                new RegressionGate.Row("tiny,kmp,positions,4", 600, 617, 0.5), // too short to time
+                new RegressionGate.Row("new,kmp,positions,4", 600, 617, 0.5));
+
+        List<String> regressions = RegressionGate.compare(baseline, current, limits);
+        assertEquals(3, regressions.size(), regressions.toString());
+        assertTrue(regressions.get(0).startsWith("b,kmp,positions,4: throughput"));
+        assertTrue(regressions.get(1).startsWith("b,kmp,positions,4: comparisons per char"));
+        assertTrue(regressions.get(2).startsWith("gone,"));
+        assertTrue(RegressionGate.compare(baseline.subList(0, 3), baseline, limits).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Summaries are read with p50 as the time; older layouts are rejected")
+    void testReadSummary() throws IOException {
+        Path now = dir.resolve("now.csv");
+        Files.writeString(now, """
+                dataset,engine,query,textLength,patternLength,matches,charComparisons,fallbackSteps,matchFallbacks,lpsComputations,elapsedMillis,p50Millis,p99Millis,p999Millis
+                x,kmp,count,100,4,1,101,0,0,3,9.000,1.250,9.000,9.000
+                ac,aho-corasick,positions,100,3,1,0,0,0,0,2.500,2.500,2.500,2.500
+                ac,aho-corasick,positions,100,3,2,0,0,0,0,2.500,2.500,2.500,2.500
+                """);
+        List<RegressionGate.Row> rows = RegressionGate.read(now);
+        assertEquals("x,kmp,count,4", rows.get(0).key());
+        assertEquals(1.25, rows.get(0).millis());
+        assertEquals(1.01, rows.get(0).comparisonsPerChar(), 1e-9);
+        assertEquals("ac,aho-corasick,positions,3", rows.get(1).key());
+        assertEquals("ac,aho-corasick,positions,3#2", rows.get(2).key());
+
+        // Summaries of older versions (no query or percentile columns) must be regenerated.
+        Path old = dir.resolve("old.csv");
+        Files.writeString(old, """
+                dataset,engine,textLength,patternLength,matches,charComparisons,fallbackSteps,matchFallbacks,lpsComputations,elapsedMillis
+                ac,aho-corasick,100,3,1,0,0,0,0,2.500
+                """);
+        assertThrows(IOException.class, () -> RegressionGate.read(old));
+    }
+}